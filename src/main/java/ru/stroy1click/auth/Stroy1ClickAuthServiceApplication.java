@@ -2,12 +2,20 @@ package ru.stroy1click.auth;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 
 @SpringBootApplication
 public class Stroy1ClickAuthServiceApplication {
 
+    /**
+     * Емкости хватает на все бины контекста с запасом; при переполнении новые шаги не записываются.
+     */
+    private static final int STARTUP_STEPS_CAPACITY = 8192;
+
     public static void main(String[] args) {
-        SpringApplication.run(Stroy1ClickAuthServiceApplication.class, args);
+        SpringApplication application = new SpringApplication(Stroy1ClickAuthServiceApplication.class);
+        application.setApplicationStartup(new BufferingApplicationStartup(STARTUP_STEPS_CAPACITY));
+        application.run(args);
     }
 
 }
@@ -0,0 +1,49 @@
+package ru.stroy1click.auth.aspect;
+
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Следит, чтобы вызовы внешних сервисов не выполнялись при открытой транзакции или привязанном
+ * к потоку соединении: медленный ответ в таком случае держит соединение из пула и исчерпывает его
+ * для всех эндпоинтов. По умолчанию нарушение пишется в лог, при
+ * {@code remote-call-guard.fail-on-violation} вызов прерывается.
+ */
+@Slf4j
+@Aspect
+@Component
+public class RemoteCallGuardAspect {
+
+    private final boolean failOnViolation;
+
+    public RemoteCallGuardAspect(@Value("${remote-call-guard.fail-on-violation}") boolean failOnViolation){
+        this.failOnViolation = failOnViolation;
+    }
+
+    @Around("execution(* ru.stroy1click.auth.client.UserClient.*(..))")
+    public Object guard(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (holdsConnection()) {
+            String call = joinPoint.getSignature().toShortString();
+            if (this.failOnViolation) {
+                throw new IllegalStateException("Remote call " + call + " inside a database transaction");
+            }
+            log.warn("guard remote call {} holds a database connection, transaction {}",
+                    call, TransactionSynchronizationManager.getCurrentTransactionName());
+        }
+        return joinPoint.proceed();
+    }
+
+    private static boolean holdsConnection() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) return true;
+
+        return TransactionSynchronizationManager.getResourceMap().values().stream()
+                .anyMatch(resource -> resource instanceof ConnectionHolder || resource instanceof EntityManagerHolder);
+    }
+}
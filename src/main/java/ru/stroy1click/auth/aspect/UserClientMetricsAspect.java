@@ -0,0 +1,58 @@
+package ru.stroy1click.auth.aspect;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import ru.stroy1click.auth.exception.AlreadyExistsException;
+import ru.stroy1click.auth.exception.NotFoundException;
+import ru.stroy1click.auth.exception.ServiceErrorResponseException;
+import ru.stroy1click.auth.exception.ServiceUnavailableException;
+import ru.stroy1click.auth.exception.ValidationException;
+
+/**
+ * Время вызовов {@code UserClient} с тегами {@code method} и {@code outcome}. Аспект стоит снаружи
+ * circuit breaker, чтобы отказы открытого breaker тоже попадали в метрику.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class UserClientMetricsAspect {
+
+    private final MeterRegistry meterRegistry;
+
+    @Around("execution(* ru.stroy1click.auth.client.UserClient.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(this.meterRegistry);
+        String outcome = "success";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            outcome = outcomeOf(e);
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("auth.user_client.requests")
+                    .tag("method", joinPoint.getSignature().getName())
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(this.meterRegistry));
+        }
+    }
+
+    private static String outcomeOf(Throwable e) {
+        if (e instanceof NotFoundException || e instanceof ValidationException || e instanceof AlreadyExistsException) {
+            return "client_error";
+        }
+        if (e instanceof ServiceErrorResponseException) return "server_error";
+        if (e instanceof ServiceUnavailableException) return "unavailable";
+        if (e instanceof CallNotPermittedException) return "circuit_open";
+        return "unknown";
+    }
+}
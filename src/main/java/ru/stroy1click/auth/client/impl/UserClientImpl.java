@@ -11,6 +11,7 @@ import ru.stroy1click.auth.client.UserClient;
 import ru.stroy1click.auth.dto.UserDto;
 import ru.stroy1click.auth.exception.ServiceUnavailableException;
 import ru.stroy1click.auth.util.ValidationErrorUtils;
+import ru.stroy1click.auth.util.LogMaskUtils;
 
 @Slf4j
 @Component
@@ -27,7 +28,7 @@ public class UserClientImpl implements UserClient {
 
     @Override
     public UserDto getByEmail(String email) {
-        log.info("getByEmail {}", email);
+        log.info("getByEmail {}", LogMaskUtils.email(email));
         try {
             return this.restClient.get()
                     .uri("/email?email={email}", email)
@@ -44,7 +45,7 @@ public class UserClientImpl implements UserClient {
 
     @Override
     public UserDto create(UserDto userDto) {
-        log.info("create {}", userDto);
+        log.info("create {}", LogMaskUtils.email(userDto.getEmail()));
         try {
             return this.restClient.post()
                     .body(userDto)
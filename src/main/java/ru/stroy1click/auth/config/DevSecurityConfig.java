@@ -5,14 +5,18 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.factory.PasswordEncoderFactories;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
@@ -30,14 +34,42 @@ public class DevSecurityConfig {
 
     private final JwtAuthFilter jwtAuthFilter;
 
+    @Value("${metrics-scraper.username}")
+    private String metricsScraperUsername;
+
+    @Value("${metrics-scraper.password}")
+    private String metricsScraperPassword;
+
+    /**
+     * Метрики отдаются только Prometheus по basic auth, JWT фильтр в этой цепочке не участвует.
+     */
+    @Bean
+    @Order(1)
+    public SecurityFilterChain metricsSecurityFilterChain(HttpSecurity http) throws Exception {
+        InMemoryUserDetailsManager scraper = new InMemoryUserDetailsManager(User.withUsername(this.metricsScraperUsername)
+                .password(passwordEncoder().encode(this.metricsScraperPassword))
+                .roles("METRICS_SCRAPER")
+                .build());
+        return http.securityMatcher("/actuator/prometheus")
+                .csrf(AbstractHttpConfigurer::disable)
+                .authorizeHttpRequests(auth -> auth.anyRequest().hasRole("METRICS_SCRAPER"))
+                .httpBasic(Customizer.withDefaults())
+                .userDetailsService(scraper)
+                .sessionManagement(session ->
+                        session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .build();
+    }
+
     @Bean
+    @Order(2)
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         return http.csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> auth.requestMatchers("/api/v1/auth/registration",
                                 "/api/v1/auth/login", "/api/v1/auth/validate", "/api/v1/tokens/access", "/api/v1/tokens/refresh-token",
                                 "/v3/api-docs/**", "/swagger-ui/**", "/swagger-resources/**", "/webjars/**",
-                                "/actuator/health")
+                                "/actuator/health", "/actuator/health/**")
                         .permitAll()
+                        .requestMatchers("/api/v1/admin/**", "/actuator/startup").hasRole("ADMIN")
                         .anyRequest().authenticated())
                 .sessionManagement(session ->
                         session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
@@ -0,0 +1,22 @@
+package ru.stroy1click.auth.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.stroy1click.auth.startup.TrainingRun;
+
+@Configuration
+public class FlywayConfig {
+
+    /**
+     * В обучающем запуске ({@link TrainingRun}) миграции пропускаются. В AOT сборке отключить Flyway
+     * свойством нельзя: условия автоконфигурации уже вычислены на этапе сборки.
+     */
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy(@Value(TrainingRun.CONTEXT_EXIT_PROPERTY) String contextExit) {
+        return flyway -> {
+            if (!TrainingRun.isActive(contextExit)) flyway.migrate();
+        };
+    }
+}
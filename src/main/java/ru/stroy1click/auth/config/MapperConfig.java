@@ -3,10 +3,15 @@ package ru.stroy1click.auth.config;
 import org.modelmapper.ModelMapper;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 
 @Configuration
 public class MapperConfig {
 
+    /**
+     * Ни один бин сервиса его не использует, поэтому создается только по требованию.
+     */
+    @Lazy
     @Bean
     public ModelMapper modelMapper(){
         return new ModelMapper();
@@ -0,0 +1,28 @@
+package ru.stroy1click.auth.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import ru.stroy1click.auth.startup.LazyInitializationPostProcessor;
+
+import java.util.List;
+
+@Configuration
+public class StartupConfig {
+
+    /**
+     * Метод статический: пост-процессор фабрики создается раньше остальных бинов, поэтому свойства
+     * берутся из {@link Environment} напрямую, а не через {@code @Value}.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "startup.lazy-initialization.enabled", havingValue = "true")
+    public static LazyInitializationPostProcessor lazyInitializationPostProcessor(Environment environment) {
+        List<String> packages = Binder.get(environment)
+                .bind("startup.lazy-initialization.packages", Bindable.listOf(String.class))
+                .orElse(List.of());
+        return new LazyInitializationPostProcessor(packages);
+    }
+}
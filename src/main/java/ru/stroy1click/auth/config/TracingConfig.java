@@ -0,0 +1,32 @@
+package ru.stroy1click.auth.config;
+
+import io.opentelemetry.sdk.autoconfigure.spi.AutoConfigurationCustomizerProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.stroy1click.auth.tracing.EndpointSampler;
+import ru.stroy1click.auth.tracing.TailSamplingSpanProcessor;
+import ru.stroy1click.auth.tracing.TracingSamplingProperties;
+
+@Configuration
+@EnableConfigurationProperties(TracingSamplingProperties.class)
+public class TracingConfig {
+
+    /**
+     * Сэмплер из {@code otel.traces.sampler} остается решением по умолчанию для путей без правил.
+     * Tail-процессор экспортирует через те же экспортеры, что и штатный batch процессор.
+     */
+    @Bean
+    public AutoConfigurationCustomizerProvider endpointSamplingCustomizer(TracingSamplingProperties properties) {
+        TailSamplingSpanProcessor tailProcessor = new TailSamplingSpanProcessor(
+                properties.slowThreshold(), properties.maxBufferedTraces()
+        );
+        return customizer -> customizer
+                .addSamplerCustomizer((sampler, config) -> new EndpointSampler(properties.rules(), sampler))
+                .addSpanExporterCustomizer((exporter, config) -> {
+                    tailProcessor.addExporter(exporter);
+                    return exporter;
+                })
+                .addTracerProviderCustomizer((builder, config) -> builder.addSpanProcessor(tailProcessor));
+    }
+}
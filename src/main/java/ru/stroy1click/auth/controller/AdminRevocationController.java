@@ -0,0 +1,45 @@
+package ru.stroy1click.auth.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.MessageSource;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import ru.stroy1click.auth.exception.ValidationException;
+import ru.stroy1click.auth.model.Role;
+import ru.stroy1click.auth.service.RevocationEpochService;
+
+import java.util.List;
+import java.util.Locale;
+
+@RestController
+@RequestMapping("/api/v1/admin/revocations")
+@RequiredArgsConstructor
+@Tag(name = "Admin Revocation Controller", description = "Массовый отзыв access токенов")
+public class AdminRevocationController {
+
+    private final RevocationEpochService revocationEpochService;
+
+    private final MessageSource messageSource;
+
+    @PostMapping("/users")
+    @Operation(summary = "Отозвать все токены пользователей из списка")
+    public ResponseEntity<String> revokeUsers(@RequestBody List<String> emails){
+        if (emails == null || emails.isEmpty()) throw new ValidationException(message("error.admin.revocation.empty"));
+
+        this.revocationEpochService.revokeUsers(emails);
+        return ResponseEntity.ok(message("info.admin.revocation.users"));
+    }
+
+    @PostMapping("/roles/{role}")
+    @Operation(summary = "Отозвать все токены пользователей с ролью")
+    public ResponseEntity<String> revokeRole(@PathVariable("role") Role role){
+        this.revocationEpochService.revokeRole(role.name());
+        return ResponseEntity.ok(message("info.admin.revocation.role"));
+    }
+
+    private String message(String key) {
+        return this.messageSource.getMessage(key, null, Locale.getDefault());
+    }
+}
@@ -0,0 +1,112 @@
+package ru.stroy1click.auth.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.MessageSource;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.stroy1click.auth.exception.ValidationException;
+import ru.stroy1click.auth.model.SessionCursor;
+import ru.stroy1click.auth.model.SessionView;
+import ru.stroy1click.auth.service.SessionQueryService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Ответ в формате NDJSON, по одной сессии на строку. Для продолжения списка передайте
+ * {@code expiryDate} и {@code id} последней полученной строки в {@code afterExpiry} и {@code afterId}.
+ */
+@RestController
+@RequestMapping("/api/v1/admin/sessions")
+@RequiredArgsConstructor
+@Tag(name = "Admin Session Controller", description = "Просмотр активных сессий")
+public class AdminSessionController {
+
+    private final SessionQueryService sessionQueryService;
+
+    private final ObjectMapper objectMapper;
+
+    private final MessageSource messageSource;
+
+    @GetMapping(value = "/by-user", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Активные сессии пользователя")
+    public ResponseEntity<StreamingResponseBody> streamByUser(@RequestParam("email") String email,
+                                                              @RequestParam(value = "afterExpiry", required = false) Instant afterExpiry,
+                                                              @RequestParam(value = "afterId", required = false) Integer afterId,
+                                                              @RequestParam(value = "limit", required = false) Long limit){
+        SessionCursor after = cursor(afterExpiry, afterId);
+        long maxRows = maxRows(limit);
+        return ndjson(consumer -> this.sessionQueryService.streamByUserEmail(email, after, maxRows, consumer));
+    }
+
+    @GetMapping(value = "/by-expiry", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Сессии, истекающие в диапазоне [from, to)")
+    public ResponseEntity<StreamingResponseBody> streamByExpiry(@RequestParam("from") Instant from,
+                                                                @RequestParam("to") Instant to,
+                                                                @RequestParam(value = "afterExpiry", required = false) Instant afterExpiry,
+                                                                @RequestParam(value = "afterId", required = false) Integer afterId,
+                                                                @RequestParam(value = "limit", required = false) Long limit){
+        if (!from.isBefore(to)) throw new ValidationException(message("error.admin.sessions.range"));
+
+        SessionCursor after = cursor(afterExpiry, afterId);
+        long maxRows = maxRows(limit);
+        return ndjson(consumer -> this.sessionQueryService.streamByExpiryRange(from, to, after, maxRows, consumer));
+    }
+
+    private SessionCursor cursor(Instant afterExpiry, Integer afterId) {
+        if (afterExpiry == null && afterId == null) return null;
+        if (afterExpiry == null || afterId == null) throw new ValidationException(message("error.admin.sessions.cursor"));
+        return new SessionCursor(afterExpiry, afterId);
+    }
+
+    private long maxRows(Long limit) {
+        if (limit == null) return Long.MAX_VALUE;
+        if (limit <= 0) throw new ValidationException(message("error.admin.sessions.limit"));
+        return limit;
+    }
+
+    /**
+     * Строки пишутся без сброса после каждой, ответ сбрасывается клиенту один раз на страницу.
+     */
+    private ResponseEntity<StreamingResponseBody> ndjson(ToLongFunction<Consumer<List<SessionView>>> query) {
+        ObjectWriter writer = this.objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = this.objectMapper.getFactory().createGenerator(outputStream)) {
+                query.applyAsLong(page -> {
+                    try {
+                        for (SessionView session : page) {
+                            writer.writeValue(generator, session);
+                            generator.writeRaw('\n');
+                        }
+                        generator.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private String message(String key) {
+        return this.messageSource.getMessage(key, null, Locale.getDefault());
+    }
+}
@@ -2,7 +2,6 @@ package ru.stroy1click.auth.controller;
 
 import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import io.github.resilience4j.ratelimiter.RequestNotPermitted;
-import lombok.RequiredArgsConstructor;
 import org.springframework.context.MessageSource;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
@@ -12,133 +11,91 @@ import ru.stroy1click.auth.exception.*;
 
 import java.util.Locale;
 
+/**
+ * Заголовки и тексты ошибок разрешаются из {@link MessageSource} один раз при старте: отсутствующий
+ * ключ ломает запуск, а не каждый ответ, и ответ с ошибкой собирается без обращений к бандлам.
+ */
 @RestControllerAdvice
-@RequiredArgsConstructor
 public class AdviceController {
 
-    private final MessageSource messageSource;
+    private final ProblemTemplate notFound;
+
+    private final ProblemTemplate validation;
+
+    private final ProblemTemplate internalException;
+
+    private final ProblemTemplate serviceUnavailable;
+
+    private final ProblemTemplate tooManyRequests;
+
+    private final ProblemTemplate alreadyExists;
+
+    public AdviceController(MessageSource messageSource){
+        this.notFound = ProblemTemplate.of(messageSource, HttpStatus.NOT_FOUND, "not_found", false);
+        this.validation = ProblemTemplate.of(messageSource, HttpStatus.BAD_REQUEST, "validation", false);
+        this.internalException = ProblemTemplate.of(messageSource, HttpStatus.INTERNAL_SERVER_ERROR, "internal_exception", true);
+        this.serviceUnavailable = ProblemTemplate.of(messageSource, HttpStatus.SERVICE_UNAVAILABLE, "service_unavailable", true);
+        this.tooManyRequests = ProblemTemplate.of(messageSource, HttpStatus.TOO_MANY_REQUESTS, "too_many_requests", true);
+        this.alreadyExists = ProblemTemplate.of(messageSource, HttpStatus.CONFLICT, "already_exist", true);
+    }
 
     @ExceptionHandler(NotFoundException.class)
     public ProblemDetail handleException(NotFoundException exception){
-        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(
-                HttpStatus.NOT_FOUND, exception.getMessage()
-        );
-        problemDetail.setTitle(
-                this.messageSource.getMessage(
-                        "error.title.not_found",
-                        null,
-                        Locale.getDefault()
-                )
-        );
-        problemDetail.setDetail(exception.getMessage());
-        return problemDetail;
+        return this.notFound.toProblemDetail(exception.getMessage());
     }
 
     @ExceptionHandler(ValidationException.class)
     public ProblemDetail handleException(ValidationException exception){
-        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(
-                HttpStatus.BAD_REQUEST, exception.getMessage()
-        );
-        problemDetail.setTitle(
-                this.messageSource.getMessage(
-                        "error.title.validation",
-                        null,
-                        Locale.getDefault()
-                )
-        );
-        problemDetail.setDetail(exception.getMessage());
-        return problemDetail;
+        return this.validation.toProblemDetail(exception.getMessage());
     }
 
     @ExceptionHandler(ServiceErrorResponseException.class)
     public ProblemDetail handleException(ServiceErrorResponseException exception){
-        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(
-                HttpStatus.INTERNAL_SERVER_ERROR,
-                this.messageSource.getMessage(
-                        "error.title.internal_exception=",
-                        null,
-                        Locale.getDefault()
-                )
-        );
-        problemDetail.setTitle(this.messageSource.getMessage(
-                "error.details.internal_exception=",
-                null,
-                Locale.getDefault()
-        ));
-        return problemDetail;
+        return this.internalException.toProblemDetail();
     }
 
     @ExceptionHandler(ServiceUnavailableException.class)
     public ProblemDetail handleException(ServiceUnavailableException exception){
-        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(
-                HttpStatus.SERVICE_UNAVAILABLE,
-                this.messageSource.getMessage(
-                        "error.details.service_unavailable",
-                        null,
-                        Locale.getDefault()
-                )
-        );
-        problemDetail.setTitle(this.messageSource.getMessage(
-                "error.title.service_unavailable",
-                null,
-                Locale.getDefault()
-        ));
-        return problemDetail;
+        return this.serviceUnavailable.toProblemDetail();
     }
 
     @ExceptionHandler(RequestNotPermitted.class)
     public ProblemDetail handleException(RequestNotPermitted exception){
-        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(
-                HttpStatus.TOO_MANY_REQUESTS,
-                this.messageSource.getMessage(
-                        "error.details.too_many_requests",
-                        null,
-                        Locale.getDefault()
-                )
-        );
-        problemDetail.setTitle(this.messageSource.getMessage(
-                "error.title.too_many_requests",
-                null,
-                Locale.getDefault()
-        ));
-        return problemDetail;
+        return this.tooManyRequests.toProblemDetail();
     }
 
     @ExceptionHandler(CallNotPermittedException.class)
     public ProblemDetail handleException(CallNotPermittedException exception){
-        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(
-                HttpStatus.SERVICE_UNAVAILABLE,
-                this.messageSource.getMessage(
-                        "error.details.service_unavailable",
-                        null,
-                        Locale.getDefault()
-                )
-        );
-        problemDetail.setTitle(this.messageSource.getMessage(
-                "error.title.service_unavailable",
-                null,
-                Locale.getDefault()
-        ));
-        return problemDetail;
+        return this.serviceUnavailable.toProblemDetail();
     }
 
     @ExceptionHandler(AlreadyExistsException.class)
     public ProblemDetail problemDetail(AlreadyExistsException exception){
-        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, exception.getMessage());
-        problemDetail.setTitle(
-                this.messageSource.getMessage(
-                        "error.title.already_exist",
-                        null,
-                        Locale.getDefault()
-                )
-        );
-        problemDetail.setDetail(
-                this.messageSource.getMessage(
-                        "error.details.already_exist",
-                        null,
-                        Locale.getDefault()
-                )
-        );
-        return problemDetail;
+        return this.alreadyExists.toProblemDetail();
+    }
+
+    /**
+     * Заготовка ответа. {@link ProblemDetail} изменяемый, поэтому на каждый ответ создается новый
+     * экземпляр из уже готовых строк.
+     */
+    private record ProblemTemplate(HttpStatus status, String title, String detail) {
+
+        static ProblemTemplate of(MessageSource messageSource, HttpStatus status, String key, boolean withDetail) {
+            return new ProblemTemplate(
+                    status,
+                    messageSource.getMessage("error.title." + key, null, Locale.getDefault()),
+                    withDetail ? messageSource.getMessage("error.details." + key, null, Locale.getDefault()) : null
+            );
+        }
+
+        ProblemDetail toProblemDetail() {
+            return toProblemDetail(this.detail);
+        }
+
+        ProblemDetail toProblemDetail(String detail) {
+            ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(this.status, detail);
+            problemDetail.setTitle(this.title);
+            return problemDetail;
+        }
     }
 }
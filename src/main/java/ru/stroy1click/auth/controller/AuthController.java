@@ -5,9 +5,13 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.MessageSource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 import ru.stroy1click.auth.dto.UserDto;
@@ -18,7 +22,11 @@ import ru.stroy1click.auth.service.JwtService;
 import ru.stroy1click.auth.service.RefreshTokenService;
 import ru.stroy1click.auth.util.ValidationErrorUtils;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/v1/auth")
@@ -27,6 +35,14 @@ import java.util.Locale;
 @RateLimiter(name = "authLimiter")
 public class AuthController {
 
+    public static final String USER_EMAIL_HEADER = "X-User-Email";
+
+    public static final String USER_ROLE_HEADER = "X-User-Role";
+
+    public static final String USER_EMAIL_CONFIRMED_HEADER = "X-User-Email-Confirmed";
+
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
     private final AuthService authService;
 
     private final JwtService jwtService;
@@ -35,40 +51,67 @@ public class AuthController {
 
     private final MessageSource messageSource;
 
+    /**
+     * Если включено, ответ 200 содержит заголовки {@code X-User-*} с данными из проверенного токена,
+     * и nginx может передать их в upstream через {@code auth_request_set} и {@code proxy_set_header}.
+     * Заголовки с такими же именами от клиента nginx должен перезаписывать всегда, иначе их можно подделать.
+     */
+    @Value("${auth.validate.forward-identity}")
+    private boolean forwardIdentity;
+
+    /**
+     * Верхняя граница {@code max-age} для ответов 200; она же максимальная задержка, с которой шлюз
+     * увидит отзыв токена. {@code 0} отключает кэширование.
+     */
+    @Value("${auth.validate.cache.max-age}")
+    private Duration cacheMaxAge;
+
     @GetMapping("/validate")
     public ResponseEntity<Void> validateJwt(@RequestHeader(value = "Authorization", required = false) String jwt,
                                               @RequestHeader(value = "X-Original-Uri") String originalUri,
                                               @RequestHeader(value = "X-Original-Method") String originalMethod){
-        if (originalMethod.equals("GET")
-                && !originalUri.startsWith("/api/v1/users")
-                && !originalUri.startsWith("/api/v1/orders")) {
-            return ResponseEntity.ok().build();
+        RouteClass routeClass = RouteClass.of(originalMethod, originalUri);
+        if (routeClass == RouteClass.PUBLIC) {
+            return ResponseEntity.ok().cacheControl(cacheControl(this.cacheMaxAge)).build();
         }
 
         if (jwt == null || !jwt.startsWith("Bearer ")) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            return unauthorized();
         }
 
-        String token = jwt.substring(7);
-        boolean isValid = this.jwtService.validate(token, originalUri);
-
-        if(!isValid){
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        Optional<VerifiedIdentity> verified = this.jwtService.verify(jwt.substring(7), routeClass);
+        if (verified.isEmpty()) {
+            return unauthorized();
         }
 
-        return ResponseEntity.ok().build();
+        VerifiedIdentity identity = verified.get();
+        Duration remaining = Duration.between(Instant.now(), identity.expiry());
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .cacheControl(cacheControl(remaining.compareTo(this.cacheMaxAge) < 0 ? remaining : this.cacheMaxAge));
+        if (this.forwardIdentity) {
+            response.header(USER_EMAIL_HEADER, identity.email())
+                    .header(USER_ROLE_HEADER, identity.role())
+                    .header(USER_EMAIL_CONFIRMED_HEADER, String.valueOf(identity.emailConfirmed()));
+        }
+        return response.build();
     }
 
     @PostMapping("/registration")
     @Operation(summary = "Зарегистрировать пользователя")
-    public ResponseEntity<String> registration(@RequestBody @Valid UserDto userDto, BindingResult bindingResult) {
+    public ResponseEntity<String> registration(@RequestBody @Valid UserDto userDto, BindingResult bindingResult,
+                                               @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         if(bindingResult.hasFieldErrors()) throw new ValidationException(
                 ValidationErrorUtils.collectErrorsToString(bindingResult.getFieldErrors())
         );
+        if(idempotencyKey != null && (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH)) {
+            throw new ValidationException(this.messageSource.getMessage(
+                    "error.idempotency.key_invalid", null, Locale.getDefault()
+            ));
+        }
 
         userDto.setEmailConfirmed(false); //by default
 
-        this.authService.createUser(userDto);
+        this.authService.createUser(userDto, idempotencyKey);
 
         return ResponseEntity.ok(
                 this.messageSource.getMessage(
@@ -95,10 +138,21 @@ public class AuthController {
                 .build();
     }
 
+    /**
+     * Без {@code email} выходит владелец access токена. Чужой email разрешен только администратору.
+     */
     @DeleteMapping("/logout-on-all-devices")
     @Operation(summary = "Выйти на всех устройствах.")
-    public ResponseEntity<String> logoutOnAllDevices(@RequestParam("email") String email){
-        this.refreshTokenService.deleteAll(email);
+    public ResponseEntity<String> logoutOnAllDevices(@RequestParam(value = "email", required = false) String email,
+                                                     Authentication authentication){
+        String target = email != null ? email : authentication.getName();
+        boolean isAdmin = authentication.getAuthorities().stream()
+                .anyMatch(authority -> Role.ROLE_ADMIN.name().equals(authority.getAuthority()));
+        if (!target.equals(authentication.getName()) && !isAdmin) {
+            throw new AccessDeniedException("logout-on-all-devices for another user");
+        }
+
+        this.authService.logoutOnAllDevices(target);
 
         return ResponseEntity.ok(
                 this.messageSource.getMessage(
@@ -111,13 +165,15 @@ public class AuthController {
 
     @PostMapping("/logout")
     @Operation(summary = "Выйти из сеанса(удаление только 1 refresh token.)")
-    public ResponseEntity<String> logout(@RequestBody @Valid RefreshTokenRequest refreshTokenRequest,
+    public ResponseEntity<String> logout(@RequestHeader(value = "Authorization", required = false) String jwt,
+                                         @RequestBody @Valid RefreshTokenRequest refreshTokenRequest,
                                          BindingResult bindingResult){
         if(bindingResult.hasFieldErrors()) throw new ValidationException(
                 ValidationErrorUtils.collectErrorsToString(bindingResult.getFieldErrors())
         );
 
-        this.authService.logout(refreshTokenRequest);
+        String accessToken = jwt != null && jwt.startsWith("Bearer ") ? jwt.substring(7) : null;
+        this.authService.logout(refreshTokenRequest, accessToken);
 
         return ResponseEntity.ok(
                 this.messageSource.getMessage(
@@ -127,4 +183,17 @@ public class AuthController {
                 )
         );
     }
-}
\ No newline at end of file
+
+    /**
+     * Без {@code private}: иначе nginx не кэширует ответ. Ответ уходит только шлюзу, а ключ кэша на нем
+     * включает заголовок {@code Authorization}.
+     */
+    private CacheControl cacheControl(Duration maxAge) {
+        long seconds = maxAge.toSeconds();
+        return seconds > 0 ? CacheControl.maxAge(seconds, TimeUnit.SECONDS) : CacheControl.noStore();
+    }
+
+    private ResponseEntity<Void> unauthorized() {
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).cacheControl(CacheControl.noStore()).build();
+    }
+}
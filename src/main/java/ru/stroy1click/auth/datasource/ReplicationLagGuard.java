@@ -0,0 +1,67 @@
+package ru.stroy1click.auth.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.stroy1click.auth.invalidation.InvalidationEvent;
+import ru.stroy1click.auth.invalidation.InvalidationListener;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Защищает чтение с реплик от отставания репликации. Ключи, записанные этой нодой, и ключи из
+ * событий инвалидации других нод помнятся в течение {@code lag-window}; чтение по такому ключу
+ * выполняется на primary.
+ */
+@Component
+public class ReplicationLagGuard implements InvalidationListener {
+
+    private final boolean enabled;
+
+    private final Cache<String, Boolean> recentWrites;
+
+    public ReplicationLagGuard(@Value("${datasource.routing.enabled}") boolean enabled,
+                               @Value("${datasource.routing.lag-window}") Duration lagWindow){
+        this.enabled = enabled;
+        this.recentWrites = Caffeine.newBuilder()
+                .expireAfterWrite(lagWindow)
+                .build();
+    }
+
+    public void recordWrite(String key) {
+        if (this.enabled) this.recentWrites.put(key, Boolean.TRUE);
+    }
+
+    public boolean isRecentlyWritten(String key) {
+        return this.enabled && this.recentWrites.getIfPresent(key) != null;
+    }
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * Ключи событий совпадают с ключами, которые записывает сама нода: token_hash, email и id
+     * сессии.
+     */
+    @Override
+    public void onInvalidation(List<InvalidationEvent> events) {
+        if (!this.enabled) return;
+
+        for (InvalidationEvent event : events) {
+            switch (event.type()) {
+                case ENTITY, NATURAL_ID, TOKEN, USER, SESSION_REVOKED -> this.recentWrites.put(event.key(), Boolean.TRUE);
+                default -> { }
+            }
+        }
+    }
+
+    /**
+     * События за время разрыва потеряны, но запомненные ключи остаются верными.
+     */
+    @Override
+    public void onResync() {
+    }
+}
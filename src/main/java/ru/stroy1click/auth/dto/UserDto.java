@@ -7,6 +7,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import org.hibernate.validator.constraints.Length;
 import ru.stroy1click.auth.model.Role;
 
@@ -33,6 +34,7 @@ public class UserDto {
     @Length(min = 8, max = 50, message = "{validation.userdto.email.length}")
     private String email;
 
+    @ToString.Exclude
     @NotBlank(message = "{validation.userdto.password.not_blank}")
     @Length(min = 8, max = 60, message = "{validation.userdto.password.length}")
     private String password;
@@ -5,10 +5,24 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+import org.hibernate.type.SqlTypes;
 
 import java.time.Instant;
 
+/**
+ * Кэшируется во втором уровне Hibernate по натуральному id {@code tokenHash}. Регионы и их
+ * размеры заданы в {@code application.conf}.
+ */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "refresh-tokens")
+@NaturalIdCache(region = "refresh-tokens-natural-id")
 @Data
 @Builder
 @Table(schema = "auth",name = "refresh_tokens")
@@ -17,13 +31,30 @@ import java.time.Instant;
 public class RefreshToken {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "refresh_tokens_id_seq")
+    @SequenceGenerator(name = "refresh_tokens_id_seq", schema = "auth",
+            sequenceName = "refresh_tokens_id_seq", allocationSize = 50)
     private Integer id;
 
+    /**
+     * Сам токен в базе не хранится, он доступен только в момент выдачи.
+     */
+    @ToString.Exclude
+    @Transient
     private String token;
 
+    @NaturalId
+    @JdbcTypeCode(SqlTypes.CHAR)
+    @Column(length = 64, nullable = false)
+    private String tokenHash;
+
     private Instant expiryDate;
 
+    /**
+     * Продление сессии не выходит за {@code issuedAt + refresh-token.extension.max-lifetime}.
+     */
+    private Instant issuedAt;
+
     private String userEmail;
 
 }
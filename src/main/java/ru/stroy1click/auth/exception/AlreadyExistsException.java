@@ -1,6 +1,6 @@
 package ru.stroy1click.auth.exception;
 
-public class AlreadyExistsException extends RuntimeException {
+public class AlreadyExistsException extends StacklessException {
 
     public AlreadyExistsException(String message) {
         super(message);
@@ -2,7 +2,7 @@ package ru.stroy1click.auth.exception;
 
 import ru.stroy1click.auth.model.RefreshTokenRequest;
 
-public class NotFoundException extends RuntimeException {
+public class NotFoundException extends StacklessException {
 
     public NotFoundException(String message) {
         super(message);
@@ -1,8 +1,8 @@
 package ru.stroy1click.auth.exception;
 
-public class ServiceErrorResponseException extends RuntimeException {
+public class ServiceErrorResponseException extends StacklessException {
 
     public ServiceErrorResponseException() {
-
+        super(null);
     }
 }
@@ -1,8 +1,8 @@
 package ru.stroy1click.auth.exception;
 
-public class ServiceUnavailableException extends RuntimeException {
+public class ServiceUnavailableException extends StacklessException {
 
     public ServiceUnavailableException() {
-
+        super(null);
     }
 }
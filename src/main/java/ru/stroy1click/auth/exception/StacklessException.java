@@ -0,0 +1,13 @@
+package ru.stroy1click.auth.exception;
+
+/**
+ * Базовый класс исключений, которые описывают ожидаемый исход запроса (неверный пароль, токен не
+ * найден, сервис пользователей недоступен), а не сбой. Стек не заполняется: при переборе паролей
+ * такие исключения летят на каждый запрос, а стек в ответ и в лог не попадает.
+ */
+public abstract class StacklessException extends RuntimeException {
+
+    protected StacklessException(String message) {
+        super(message, null, false, false);
+    }
+}
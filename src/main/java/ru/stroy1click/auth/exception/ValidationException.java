@@ -1,6 +1,6 @@
 package ru.stroy1click.auth.exception;
 
-public class ValidationException extends RuntimeException {
+public class ValidationException extends StacklessException {
 
     public ValidationException(String message) {
         super(message);
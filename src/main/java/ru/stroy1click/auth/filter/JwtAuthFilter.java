@@ -1,47 +1,59 @@
 package ru.stroy1click.auth.filter;
 
-import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
+import ru.stroy1click.auth.model.RouteClass;
+import ru.stroy1click.auth.model.VerifiedIdentity;
 import ru.stroy1click.auth.service.JwtService;
 
 import java.io.IOException;
-import java.util.Collection;
+import java.util.Collections;
+import java.util.Optional;
 
 @Component
 @RequiredArgsConstructor
 public class JwtAuthFilter extends OncePerRequestFilter {
 
+    private static final String VALIDATE_PATH = "/api/v1/auth/validate";
+
     private final JwtService jwtService;
 
+    /**
+     * {@code /validate} открыт для всех и сам проверяет токен из заголовка, повторная проверка
+     * в фильтре была бы лишней.
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return VALIDATE_PATH.equals(request.getServletPath());
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         String authHeader = request.getHeader("Authorization");
-        String token = null;
-        String email = null;
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            token = authHeader.substring(7);
-            try {
-                email = this.jwtService.extractEmail(token);
-            } catch (JwtException e){ //Expired, InvalidSignature, etc exception
+            // подпись, срок действия и отзыв проверяются за один разбор токена, роль проверяет Spring Security
+            Optional<VerifiedIdentity> verified = this.jwtService.verify(authHeader.substring(7), RouteClass.PUBLIC);
+            if (verified.isEmpty()) { //Expired, InvalidSignature, Revoked etc
                 response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
                 return;
             }
-        }
-        if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            Collection<? extends GrantedAuthority> authorities = this.jwtService.extractRole(token);
-            UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(email, null, authorities);
-            authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-            SecurityContextHolder.getContext().setAuthentication(authToken);
+
+            VerifiedIdentity identity = verified.get();
+            if (SecurityContextHolder.getContext().getAuthentication() == null) {
+                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(identity.email(), null,
+                        Collections.singleton(new SimpleGrantedAuthority(identity.role())));
+                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authToken);
+            }
         }
         filterChain.doFilter(request, response);
     }
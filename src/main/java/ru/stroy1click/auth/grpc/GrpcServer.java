@@ -0,0 +1,94 @@
+package ru.stroy1click.auth.grpc;
+
+import io.grpc.BindableService;
+import io.grpc.Server;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * gRPC сервер на отдельном порту. Вызовы выполняются прямо в потоках Netty, без передачи в пул:
+ * проверка токена не ходит в сеть и базу, отзывы читаются из памяти.
+ * <p>
+ * Порт не защищен и должен быть доступен только внутри кластера.
+ */
+@Slf4j
+@Component
+public class GrpcServer implements SmartLifecycle {
+
+    private final List<BindableService> services;
+
+    private final boolean enabled;
+
+    private final int port;
+
+    private final int maxConcurrentCallsPerConnection;
+
+    private final Duration shutdownTimeout;
+
+    private volatile Server server;
+
+    public GrpcServer(List<BindableService> services,
+                      @Value("${grpc.server.enabled}") boolean enabled,
+                      @Value("${grpc.server.port}") int port,
+                      @Value("${grpc.server.max-concurrent-calls-per-connection}") int maxConcurrentCallsPerConnection,
+                      @Value("${grpc.server.shutdown-timeout}") Duration shutdownTimeout){
+        this.services = services;
+        this.enabled = enabled;
+        this.port = port;
+        this.maxConcurrentCallsPerConnection = maxConcurrentCallsPerConnection;
+        this.shutdownTimeout = shutdownTimeout;
+    }
+
+    @Override
+    public void start() {
+        if (!this.enabled) return;
+
+        NettyServerBuilder builder = NettyServerBuilder.forPort(this.port)
+                .directExecutor()
+                .maxConcurrentCallsPerConnection(this.maxConcurrentCallsPerConnection);
+        this.services.forEach(builder::addService);
+        try {
+            this.server = builder.build().start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("start gRPC server on port {}", this.server.getPort());
+    }
+
+    @Override
+    public void stop() {
+        Server current = this.server;
+        if (current == null) return;
+        current.shutdown();
+        try {
+            if (!current.awaitTermination(this.shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                current.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            current.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        this.server = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.server != null;
+    }
+
+    /**
+     * Фактический порт, в том числе при {@code grpc.server.port=0}.
+     */
+    public int getPort() {
+        return this.server != null ? this.server.getPort() : -1;
+    }
+}
@@ -0,0 +1,108 @@
+package ru.stroy1click.auth.grpc;
+
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.stroy1click.auth.grpc.v1.*;
+import ru.stroy1click.auth.model.RouteClass;
+import ru.stroy1click.auth.model.VerifiedIdentity;
+import ru.stroy1click.auth.service.JwtService;
+
+import java.util.Optional;
+
+/**
+ * gRPC-версия {@code GET /api/v1/auth/validate}: те же классы маршрутов и проверки через
+ * {@link JwtService}, но токен передается без префикса {@code Bearer}.
+ */
+@Component
+public class TokenValidationGrpcService extends TokenValidationGrpc.TokenValidationImplBase {
+
+    private final JwtService jwtService;
+
+    private final int maxBatchSize;
+
+    public TokenValidationGrpcService(JwtService jwtService,
+                                      @Value("${grpc.server.max-batch-size}") int maxBatchSize){
+        this.jwtService = jwtService;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    public void validate(ValidateRequest request, StreamObserver<ValidateResponse> responseObserver) {
+        responseObserver.onNext(validate(request));
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void validateBatch(ValidateBatchRequest request, StreamObserver<ValidateBatchResponse> responseObserver) {
+        if (request.getRequestsCount() > this.maxBatchSize) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription("Batch size exceeds " + this.maxBatchSize)
+                    .asRuntimeException());
+            return;
+        }
+
+        ValidateBatchResponse.Builder response = ValidateBatchResponse.newBuilder();
+        for (ValidateRequest validateRequest : request.getRequestsList()) {
+            response.addResponses(validate(validateRequest));
+        }
+        responseObserver.onNext(response.build());
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public StreamObserver<ValidateRequest> validateStream(StreamObserver<ValidateResponse> responseObserver) {
+        return new StreamObserver<>() {
+
+            @Override
+            public void onNext(ValidateRequest request) {
+                responseObserver.onNext(validate(request));
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                // клиент отменил поток, отвечать уже некому
+            }
+
+            @Override
+            public void onCompleted() {
+                responseObserver.onCompleted();
+            }
+        };
+    }
+
+    @Override
+    public void extractClaims(ExtractClaimsRequest request, StreamObserver<ValidateResponse> responseObserver) {
+        responseObserver.onNext(toResponse(verify(request.getToken(), RouteClass.PUBLIC), 0));
+        responseObserver.onCompleted();
+    }
+
+    private ValidateResponse validate(ValidateRequest request) {
+        RouteClass routeClass = RouteClass.of(request.getOriginalMethod(), request.getOriginalUri());
+        if (routeClass == RouteClass.PUBLIC) {
+            return ValidateResponse.newBuilder()
+                    .setValid(true)
+                    .setCorrelationId(request.getCorrelationId())
+                    .build();
+        }
+        return toResponse(verify(request.getToken(), routeClass), request.getCorrelationId());
+    }
+
+    private Optional<VerifiedIdentity> verify(String token, RouteClass routeClass) {
+        if (token.isEmpty()) return Optional.empty();
+        return this.jwtService.verify(token, routeClass);
+    }
+
+    private ValidateResponse toResponse(Optional<VerifiedIdentity> verified, long correlationId) {
+        ValidateResponse.Builder response = ValidateResponse.newBuilder()
+                .setValid(verified.isPresent())
+                .setCorrelationId(correlationId);
+        verified.ifPresent(identity -> response.setIdentity(Identity.newBuilder()
+                .setEmail(identity.email())
+                .setRole(identity.role())
+                .setEmailConfirmed(Boolean.TRUE.equals(identity.emailConfirmed()))
+                .setExpiresAtEpochSecond(identity.expiry().getEpochSecond())));
+        return response.build();
+    }
+}
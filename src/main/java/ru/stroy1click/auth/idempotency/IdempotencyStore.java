@@ -0,0 +1,101 @@
+package ru.stroy1click.auth.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.MessageSource;
+import org.springframework.stereotype.Component;
+import ru.stroy1click.auth.exception.AlreadyExistsException;
+import ru.stroy1click.auth.exception.NotFoundException;
+import ru.stroy1click.auth.exception.ServiceUnavailableException;
+import ru.stroy1click.auth.exception.ValidationException;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Результаты запросов с заголовком {@code Idempotency-Key}, в памяти ноды с ограничением по размеру
+ * и TTL. Первый запрос с ключом выполняет действие, параллельные и повторные получают тот же
+ * результат или то же исключение без повторного вызова.
+ * <p>
+ * Запоминаются только окончательные ответы: успех и ошибки 4xx от сервиса пользователей. После
+ * временной ошибки (сервис недоступен, circuit breaker, rate limiter) ключ освобождается, и повтор
+ * клиента выполняется заново. Ключ, повторенный с другим телом запроса, отклоняется.
+ */
+@Component
+public class IdempotencyStore {
+
+    private final Cache<String, Entry> entries;
+
+    private final Duration waitTimeout;
+
+    private final MessageSource messageSource;
+
+    public IdempotencyStore(MessageSource messageSource,
+                            @Value("${idempotency.max-size}") long maxSize,
+                            @Value("${idempotency.ttl}") Duration ttl,
+                            @Value("${idempotency.wait-timeout}") Duration waitTimeout){
+        this.messageSource = messageSource;
+        this.waitTimeout = waitTimeout;
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * @param fingerprint дайджест тела запроса, с которым ключ был использован впервые
+     */
+    public <T> T execute(String key, String fingerprint, Supplier<T> action) {
+        Entry created = new Entry(fingerprint, new CompletableFuture<>());
+        Entry existing = this.entries.asMap().putIfAbsent(key, created);
+        if (existing == null) return run(key, created, action);
+
+        if (!existing.fingerprint().equals(fingerprint)) {
+            throw new ValidationException(this.messageSource.getMessage(
+                    "error.idempotency.key_reused", null, Locale.getDefault()));
+        }
+        return await(existing);
+    }
+
+    private <T> T run(String key, Entry entry, Supplier<T> action) {
+        try {
+            T result = action.get();
+            entry.result().complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            if (!isFinal(e)) this.entries.asMap().remove(key, entry);
+            entry.result().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T await(Entry entry) {
+        try {
+            return (T) entry.result().get(this.waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new ServiceUnavailableException();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException();
+        }
+    }
+
+    private boolean isFinal(RuntimeException e) {
+        return e instanceof AlreadyExistsException
+                || e instanceof ValidationException
+                || e instanceof NotFoundException;
+    }
+
+    private record Entry(String fingerprint, CompletableFuture<Object> result) {
+    }
+}
@@ -0,0 +1,328 @@
+package ru.stroy1click.auth.invalidation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Шина инвалидации локальных кэшей между нодами через Postgres NOTIFY/LISTEN.
+ * <p>
+ * Публикация внутри транзакции копится до коммита и отбрасывается при откате. После коммита (или
+ * сразу, вне транзакции) события попадают в очередь, которую отдельный поток раз в
+ * {@code flush-interval} отправляет одной транзакцией с NOTIFY, убрав повторы. NOTIFY берет на
+ * коммите общую для базы блокировку, поэтому отправка из каждой пишущей транзакции
+ * сериализовала бы их коммиты. Если очередь заполнена, события отправляются сразу.
+ * <p>
+ * Прием идет в отдельном потоке на выделенном соединении вне пула: LISTEN держит соединение
+ * постоянно и не должен занимать место в пуле запросов. Если соединение молчит дольше
+ * {@code keepalive-interval}, оно проверяется запросом; после обрыва поток переподключается с
+ * экспоненциальной задержкой и вызывает {@link InvalidationListener#onResync()}, так как
+ * события за время разрыва потеряны.
+ */
+@Slf4j
+@Component
+public class InvalidationBus implements SmartLifecycle {
+
+    public static final String CHANNEL = "auth_invalidation";
+
+    private final DataSourceProperties dataSourceProperties;
+
+    private final ObjectProvider<JdbcConnectionDetails> connectionDetails;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate newTransactionTemplate;
+
+    private final ObjectProvider<InvalidationListener> listeners;
+
+    private final boolean enabled;
+
+    private final Duration pollTimeout;
+
+    private final Duration keepaliveInterval;
+
+    private final Duration minReconnectBackoff;
+
+    private final Duration maxReconnectBackoff;
+
+    private final Duration flushInterval;
+
+    private final BlockingQueue<InvalidationEvent> outbox;
+
+    private final String nodeId = UUID.randomUUID().toString().substring(0, 8);
+
+    private volatile boolean running;
+
+    private Thread listenerThread;
+
+    private Thread senderThread;
+
+    public InvalidationBus(DataSourceProperties dataSourceProperties,
+                           ObjectProvider<JdbcConnectionDetails> connectionDetails,
+                           JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           ObjectProvider<InvalidationListener> listeners,
+                           @Value("${invalidation-bus.enabled}") boolean enabled,
+                           @Value("${invalidation-bus.poll-timeout}") Duration pollTimeout,
+                           @Value("${invalidation-bus.keepalive-interval}") Duration keepaliveInterval,
+                           @Value("${invalidation-bus.reconnect-backoff.min}") Duration minReconnectBackoff,
+                           @Value("${invalidation-bus.reconnect-backoff.max}") Duration maxReconnectBackoff,
+                           @Value("${invalidation-bus.flush-interval}") Duration flushInterval,
+                           @Value("${invalidation-bus.capacity}") int capacity){
+        this.dataSourceProperties = dataSourceProperties;
+        this.connectionDetails = connectionDetails;
+        this.jdbcTemplate = jdbcTemplate;
+        this.newTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.listeners = listeners;
+        this.enabled = enabled;
+        this.pollTimeout = pollTimeout;
+        this.keepaliveInterval = keepaliveInterval;
+        this.minReconnectBackoff = minReconnectBackoff;
+        this.maxReconnectBackoff = maxReconnectBackoff;
+        this.flushInterval = flushInterval;
+        this.outbox = new LinkedBlockingQueue<>(capacity);
+    }
+
+    public void publish(InvalidationEvent event) {
+        if (!this.enabled) return;
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(List.of(event));
+            return;
+        }
+
+        PendingEvents pending = (PendingEvents) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingEvents();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.events.add(event);
+    }
+
+    private void enqueue(List<InvalidationEvent> events) {
+        if (!this.running) {
+            sendInNewTransaction(events);
+            return;
+        }
+
+        List<InvalidationEvent> overflow = new ArrayList<>();
+        for (InvalidationEvent event : events) {
+            if (!this.outbox.offer(event)) overflow.add(event);
+        }
+        if (!overflow.isEmpty()) sendInNewTransaction(overflow);
+    }
+
+    /**
+     * Ресурсы транзакции вызывающего кода могут быть еще привязаны к потоку, поэтому отправка идет
+     * в новой транзакции: все NOTIFY пачки уходят одним коммитом.
+     */
+    private void sendInNewTransaction(List<InvalidationEvent> events) {
+        this.newTransactionTemplate.executeWithoutResult(status -> {
+            for (String payload : InvalidationEvent.encode(this.nodeId, events)) {
+                this.jdbcTemplate.query("select pg_notify(?, ?)", rs -> null, CHANNEL, payload);
+            }
+        });
+    }
+
+    /**
+     * Неотправленные из-за ошибки события остаются в пачке и уходят со следующей попыткой.
+     */
+    private void sendLoop() {
+        Set<InvalidationEvent> batch = new LinkedHashSet<>();
+        while (this.running || !this.outbox.isEmpty() || !batch.isEmpty()) {
+            try {
+                InvalidationEvent first = this.outbox.poll(this.flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    // события за интервал собираются в одну отправку
+                    Thread.sleep(this.flushInterval);
+                    batch.add(first);
+                }
+                List<InvalidationEvent> drained = new ArrayList<>();
+                this.outbox.drainTo(drained);
+                batch.addAll(drained);
+                if (batch.isEmpty()) continue;
+
+                sendInNewTransaction(new ArrayList<>(batch));
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                if (!this.running) {
+                    log.warn("sendLoop dropped {} events on shutdown: {}", batch.size(), e.getMessage());
+                    return;
+                }
+                log.warn("sendLoop failed to send {} events, retrying: {}", batch.size(), e.getMessage());
+                sleep(this.minReconnectBackoff);
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!this.enabled) return;
+
+        this.running = true;
+        this.senderThread = Thread.ofPlatform()
+                .name("invalidation-bus-sender")
+                .daemon(true)
+                .start(this::sendLoop);
+        this.listenerThread = Thread.ofPlatform()
+                .name("invalidation-bus-listener")
+                .daemon(true)
+                .start(this::listenLoop);
+    }
+
+    /**
+     * Поток отправки перед остановкой досылает накопленные события.
+     */
+    @Override
+    public void stop() {
+        this.running = false;
+        try {
+            if (this.senderThread != null) this.senderThread.join(this.flushInterval.toMillis() + 5000);
+            if (this.listenerThread != null) this.listenerThread.join(this.pollTimeout.toMillis() + 5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    private void listenLoop() {
+        Duration backoff = this.minReconnectBackoff;
+        boolean connectedBefore = false;
+
+        while (this.running) {
+            try (Connection connection = openListenerConnection();
+                 Statement statement = connection.createStatement()) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                statement.execute("listen " + CHANNEL);
+                log.info("listenLoop listening on {}", CHANNEL);
+
+                if (connectedBefore) resync();
+                connectedBefore = true;
+                backoff = this.minReconnectBackoff;
+
+                long lastActivity = System.nanoTime();
+                while (this.running) {
+                    PGNotification[] notifications = pgConnection.getNotifications((int) this.pollTimeout.toMillis());
+                    if (notifications != null && notifications.length > 0) {
+                        dispatch(notifications);
+                        lastActivity = System.nanoTime();
+                    } else if (System.nanoTime() - lastActivity > this.keepaliveInterval.toNanos()) {
+                        statement.execute("select 1");
+                        lastActivity = System.nanoTime();
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!this.running) break;
+                log.warn("listenLoop connection lost, reconnecting in {}: {}", backoff, e.getMessage());
+                sleep(backoff);
+                backoff = backoff.multipliedBy(2).compareTo(this.maxReconnectBackoff) > 0
+                        ? this.maxReconnectBackoff
+                        : backoff.multipliedBy(2);
+            }
+        }
+    }
+
+    /**
+     * Соединение открывается драйвером напрямую с теми же реквизитами, что и primary пул.
+     */
+    private Connection openListenerConnection() throws SQLException {
+        JdbcConnectionDetails details = this.connectionDetails.getIfAvailable();
+        Properties properties = new Properties();
+        properties.setProperty("user", details != null ? details.getUsername() : this.dataSourceProperties.determineUsername());
+        properties.setProperty("password", details != null ? details.getPassword() : this.dataSourceProperties.determinePassword());
+        properties.setProperty("ApplicationName", "invalidation-bus-listener");
+        return DriverManager.getConnection(
+                details != null ? details.getJdbcUrl() : this.dataSourceProperties.determineUrl(), properties);
+    }
+
+    private void dispatch(PGNotification[] notifications) {
+        List<InvalidationEvent> events = new ArrayList<>();
+        for (PGNotification notification : notifications) {
+            String payload = notification.getParameter();
+            if (this.nodeId.equals(InvalidationEvent.originOf(payload))) continue;
+            try {
+                events.addAll(InvalidationEvent.decode(payload));
+            } catch (RuntimeException e) {
+                log.warn("dispatch skipped malformed payload {}", payload);
+            }
+        }
+        if (events.isEmpty()) return;
+
+        this.listeners.orderedStream().forEach(listener -> {
+            try {
+                listener.onInvalidation(events);
+            } catch (RuntimeException e) {
+                log.error("dispatch failed in {}", listener.getClass().getSimpleName(), e);
+            }
+        });
+    }
+
+    private void resync() {
+        this.listeners.orderedStream().forEach(listener -> {
+            try {
+                listener.onResync();
+            } catch (RuntimeException e) {
+                log.error("resync failed in {}", listener.getClass().getSimpleName(), e);
+            }
+        });
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private class PendingEvents implements TransactionSynchronization {
+
+        private final List<InvalidationEvent> events = new ArrayList<>();
+
+        @Override
+        public void afterCommit() {
+            enqueue(this.events);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(InvalidationBus.this);
+        }
+    }
+}
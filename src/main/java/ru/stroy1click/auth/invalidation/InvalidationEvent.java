@@ -0,0 +1,110 @@
+package ru.stroy1click.auth.invalidation;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Событие инвалидации. В payload NOTIFY первая строка - id ноды-отправителя, далее по строке на
+ * событие в виде {@code код|exp в секундах|ключ}; ключ идет последним и может содержать
+ * разделитель.
+ */
+public record InvalidationEvent(Type type, String key, Instant expiry) {
+
+    /**
+     * Лимит payload в Postgres - 8000 байт. Длина считается в символах, поэтому запас оставлен
+     * на многобайтовые символы в email.
+     */
+    static final int MAX_PAYLOAD_LENGTH = 4000;
+
+    public enum Type {
+
+        /**
+         * Запись второго уровня кэша Hibernate по id сущности.
+         */
+        ENTITY('E'),
+
+        /**
+         * Запись региона natural id второго уровня кэша Hibernate по token_hash.
+         */
+        NATURAL_ID('H'),
+
+        /**
+         * Сессия в кэше {@code tiered} хранилища по token_hash.
+         */
+        TOKEN('T'),
+
+        /**
+         * Все сессии пользователя в кэше {@code tiered} хранилища по email.
+         */
+        USER('U'),
+
+        /**
+         * Отозванная сессия подписанного refresh токена по token_hash.
+         */
+        SESSION_REVOKED('S'),
+
+        /**
+         * Отозванный access токен по jti.
+         */
+        ACCESS_TOKEN_REVOKED('A'),
+
+        /**
+         * Новая эпоха отзыва пользователя по email; в {@code expiry} передается not_before.
+         */
+        USER_EPOCH('N'),
+
+        /**
+         * Новая эпоха отзыва роли; в {@code expiry} передается not_before.
+         */
+        ROLE_EPOCH('R');
+
+        private final char code;
+
+        Type(char code) {
+            this.code = code;
+        }
+
+        static Type of(char code) {
+            for (Type type : values()) {
+                if (type.code == code) return type;
+            }
+            throw new IllegalArgumentException("Unknown invalidation event type: " + code);
+        }
+    }
+
+    public static InvalidationEvent of(Type type, String key) {
+        return new InvalidationEvent(type, key, null);
+    }
+
+    static List<String> encode(String origin, List<InvalidationEvent> events) {
+        List<String> payloads = new ArrayList<>();
+        StringBuilder payload = new StringBuilder(origin);
+        for (InvalidationEvent event : events) {
+            String line = event.type.code + "|" + (event.expiry == null ? "" : event.expiry.getEpochSecond()) + "|" + event.key;
+            if (payload.length() > origin.length() && payload.length() + line.length() + 1 > MAX_PAYLOAD_LENGTH) {
+                payloads.add(payload.toString());
+                payload = new StringBuilder(origin);
+            }
+            payload.append('\n').append(line);
+        }
+        if (payload.length() > origin.length()) payloads.add(payload.toString());
+        return payloads;
+    }
+
+    static List<InvalidationEvent> decode(String payload) {
+        String[] lines = payload.split("\n");
+        List<InvalidationEvent> events = new ArrayList<>(lines.length - 1);
+        for (int i = 1; i < lines.length; i++) {
+            String[] parts = lines[i].split("\\|", 3);
+            Instant expiry = parts[1].isEmpty() ? null : Instant.ofEpochSecond(Long.parseLong(parts[1]));
+            events.add(new InvalidationEvent(Type.of(parts[0].charAt(0)), parts[2], expiry));
+        }
+        return events;
+    }
+
+    static String originOf(String payload) {
+        int end = payload.indexOf('\n');
+        return end < 0 ? payload : payload.substring(0, end);
+    }
+}
@@ -0,0 +1,18 @@
+package ru.stroy1click.auth.invalidation;
+
+import java.util.List;
+
+/**
+ * Получатель событий {@link InvalidationBus}. Вызывается из потока LISTEN соединения, поэтому
+ * обработка должна быть быстрой и не должна обращаться к шине.
+ */
+public interface InvalidationListener {
+
+    void onInvalidation(List<InvalidationEvent> events);
+
+    /**
+     * Вызывается после переподключения: события за время разрыва потеряны, локальное состояние
+     * нужно сбросить или перечитать целиком.
+     */
+    void onResync();
+}
@@ -0,0 +1,85 @@
+package ru.stroy1click.auth.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ограничивает число INFO и более подробных сообщений горячих путей: каждому шаблону сообщения
+ * (то есть месту вызова) разрешено не больше {@code permitsPerSecond} записей в секунду, остальные
+ * отбрасываются до форматирования. WARN и ERROR проходят всегда.
+ * <p>
+ * Настраивается в {@code logback.xml}: {@code loggerPrefix} можно указать несколько раз.
+ */
+public class HotPathSamplingTurboFilter extends TurboFilter {
+
+    private final List<String> loggerPrefixes = new ArrayList<>();
+
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private int permitsPerSecond = 10;
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (!isStarted() || format == null || level.isGreaterOrEqual(Level.WARN)) return FilterReply.NEUTRAL;
+        if (!level.isGreaterOrEqual(logger.getEffectiveLevel()) || !isHotPath(logger.getName())) {
+            return FilterReply.NEUTRAL;
+        }
+
+        long second = System.currentTimeMillis() / 1000;
+        if (this.windows.computeIfAbsent(format, key -> new Window()).tryAcquire(second, this.permitsPerSecond)) {
+            return FilterReply.NEUTRAL;
+        }
+        this.dropped.incrementAndGet();
+        return FilterReply.DENY;
+    }
+
+    public long getDropped() {
+        return this.dropped.get();
+    }
+
+    public void addLoggerPrefix(String loggerPrefix) {
+        this.loggerPrefixes.add(loggerPrefix);
+    }
+
+    public void setPermitsPerSecond(int permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+    }
+
+    private boolean isHotPath(String loggerName) {
+        for (String prefix : this.loggerPrefixes) {
+            if (loggerName.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    private static final class Window {
+
+        private volatile long second;
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        boolean tryAcquire(long now, int permits) {
+            if (this.second != now) {
+                synchronized (this) {
+                    if (this.second != now) {
+                        this.count.set(0);
+                        this.second = now;
+                    }
+                }
+            }
+            return this.count.incrementAndGet() <= permits;
+        }
+    }
+}
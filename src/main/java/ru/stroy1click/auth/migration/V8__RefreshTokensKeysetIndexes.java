@@ -0,0 +1,79 @@
+package ru.stroy1click.auth.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Списки сессий для администраторов идут keyset-пагинацией по (expiry_date, id). id в конце индекса
+ * дает готовый порядок без сортировки внутри одинаковых expiry_date; старые индексы становятся
+ * префиксами новых и удаляются.
+ * <p>
+ * Обычный CREATE INDEX на партиционированной таблице блокирует запись во все партиции на все
+ * время построения. Поэтому на родителе создается пустой индекс {@code ON ONLY}, индекс каждой
+ * партиции строится {@code CONCURRENTLY} и присоединяется к нему; родительский индекс становится
+ * валидным после присоединения последней партиции. CONCURRENTLY нельзя выполнить в транзакции и
+ * в DO блоке, а имена партиций известны только во время миграции, поэтому миграция написана на
+ * Java и идет вне транзакции. Удаление старых индексов затрагивает только каталог.
+ */
+@Component
+public class V8__RefreshTokensKeysetIndexes extends BaseJavaMigration {
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(context.getConnection(), true));
+
+        createIndex(jdbcTemplate, "user_email_expiry_date_id_idx", "user_email, expiry_date, id");
+        createIndex(jdbcTemplate, "expiry_date_id_idx", "expiry_date, id");
+
+        jdbcTemplate.execute("drop index if exists auth.refresh_tokens_user_email_expiry_date_idx");
+        jdbcTemplate.execute("drop index if exists auth.refresh_tokens_expiry_date_idx");
+    }
+
+    /**
+     * if not exists делает шаги повторяемыми, если миграция прервалась на середине.
+     */
+    private void createIndex(JdbcTemplate jdbcTemplate, String suffix, String columns) {
+        String parentIndex = "refresh_tokens_" + suffix;
+        jdbcTemplate.execute("create index if not exists %s on only auth.refresh_tokens (%s)".formatted(parentIndex, columns));
+
+        List<String> partitions = jdbcTemplate.queryForList("""
+                select c.relname from pg_inherits i
+                join pg_class c on c.oid = i.inhrelid
+                where i.inhparent = 'auth.refresh_tokens'::regclass
+                order by c.relname
+                """, String.class);
+        for (String partition : partitions) {
+            String partitionIndex = partition + "_" + suffix;
+            // недостроенный после прерванного CONCURRENTLY индекс остается невалидным, его нужно пересоздать
+            jdbcTemplate.execute("""
+                    do $$
+                    begin
+                        if exists (select 1 from pg_index where indexrelid = to_regclass('auth.%s') and not indisvalid) then
+                            execute 'drop index auth.%s';
+                        end if;
+                    end $$
+                    """.formatted(partitionIndex, partitionIndex));
+            jdbcTemplate.execute("create index concurrently if not exists %s on auth.%s (%s)"
+                    .formatted(partitionIndex, partition, columns));
+            jdbcTemplate.execute("""
+                    do $$
+                    begin
+                        if not exists (select 1 from pg_inherits
+                                       where inhrelid = 'auth.%s'::regclass and inhparent = 'auth.%s'::regclass) then
+                            alter index auth.%s attach partition auth.%s;
+                        end if;
+                    end $$
+                    """.formatted(partitionIndex, parentIndex, parentIndex, partitionIndex));
+        }
+    }
+}
@@ -5,6 +5,7 @@ import jakarta.validation.constraints.NotBlank;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import org.hibernate.validator.constraints.Length;
 
 @Data
@@ -17,6 +18,7 @@ public class AuthRequest {
     @Length(min = 8, max = 50, message = "{validation.auth.request.email.length}")
     private String email;
 
+    @ToString.Exclude
     @NotBlank(message = "{validation.auth.request.password.not_blank}")
     @Length(min = 8, max = 60, message = "{validation.auth.request.password.length}")
     private String password;
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 @Data
 @AllArgsConstructor
@@ -11,8 +12,10 @@ import lombok.NoArgsConstructor;
 @Builder
 public class JwtResponse {
 
+    @ToString.Exclude
     private String accessToken;
 
+    @ToString.Exclude
     private String refreshToken;
 }
 
@@ -0,0 +1,13 @@
+package ru.stroy1click.auth.model;
+
+import java.time.Instant;
+
+/**
+ * Содержимое подписанного refresh токена.
+ */
+public record RefreshTokenClaims(String sessionId, String email, Instant expiry) {
+
+    public boolean isExpired() {
+        return this.expiry.isBefore(Instant.now());
+    }
+}
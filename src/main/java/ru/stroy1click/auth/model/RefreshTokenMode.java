@@ -0,0 +1,14 @@
+package ru.stroy1click.auth.model;
+
+public enum RefreshTokenMode {
+
+    /**
+     * Случайный UUID, каждое обновление access токена ищет сессию в базе.
+     */
+    OPAQUE,
+
+    /**
+     * Подписанный JWT с id сессии, email и сроком действия, проверяется без базы.
+     */
+    SIGNED
+}
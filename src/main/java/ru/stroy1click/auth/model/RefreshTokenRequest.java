@@ -4,14 +4,16 @@ import jakarta.validation.constraints.NotBlank;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.hibernate.validator.constraints.Length;
+import lombok.ToString;
+import ru.stroy1click.auth.validation.ValidRefreshToken;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 public class RefreshTokenRequest {
 
-    @Length(min = 36, max = 36, message = "{validation.refresh.token.request.refresh_token.length}")
+    @ToString.Exclude
+    @ValidRefreshToken
     @NotBlank(message = "{validation.refresh.token.request.refresh_token.not_blank}")
     private String refreshToken;
 
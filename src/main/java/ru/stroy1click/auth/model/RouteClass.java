@@ -0,0 +1,43 @@
+package ru.stroy1click.auth.model;
+
+/**
+ * Класс маршрута для проверки в {@code /api/v1/auth/validate}: от него, а не от конкретного URI,
+ * зависит решение. Такое же разбиение должен повторять ключ кэша на шлюзе.
+ */
+public enum RouteClass {
+
+    /**
+     * GET вне пользователей и заказов, токен не нужен.
+     */
+    PUBLIC,
+
+    /**
+     * Пользователи и заказы, достаточно {@code ROLE_USER}.
+     */
+    USER,
+
+    /**
+     * Все остальное, только {@code ROLE_ADMIN}.
+     */
+    ADMIN;
+
+    public static RouteClass of(String method, String uri) {
+        RouteClass protectedClass = ofProtected(uri);
+        return protectedClass == ADMIN && "GET".equals(method) ? PUBLIC : protectedClass;
+    }
+
+    /**
+     * Класс маршрута без учета метода, когда токен проверяется в любом случае.
+     */
+    public static RouteClass ofProtected(String uri) {
+        return uri.startsWith("/api/v1/users") || uri.startsWith("/api/v1/orders") ? USER : ADMIN;
+    }
+
+    public boolean permits(String role) {
+        return switch (this) {
+            case PUBLIC -> true;
+            case USER -> "ROLE_USER".equals(role) || "ROLE_ADMIN".equals(role);
+            case ADMIN -> "ROLE_ADMIN".equals(role);
+        };
+    }
+}
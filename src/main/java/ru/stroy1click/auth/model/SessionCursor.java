@@ -0,0 +1,16 @@
+package ru.stroy1click.auth.model;
+
+import java.time.Instant;
+
+/**
+ * Позиция keyset-пагинации: строки строго после {@code (expiryDate, id)}.
+ */
+public record SessionCursor(Instant expiryDate, int id) {
+
+    /**
+     * Начало диапазона, который начинается с {@code expiryDate} включительно.
+     */
+    public static SessionCursor from(Instant expiryDate) {
+        return new SessionCursor(expiryDate, Integer.MIN_VALUE);
+    }
+}
@@ -0,0 +1,6 @@
+package ru.stroy1click.auth.model;
+
+public enum SessionLimitPolicy {
+
+    REJECT, EVICT_OLDEST
+}
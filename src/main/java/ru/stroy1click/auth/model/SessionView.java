@@ -0,0 +1,10 @@
+package ru.stroy1click.auth.model;
+
+import java.time.Instant;
+
+/**
+ * Сессия в списках для администраторов. Пара {@code (expiryDate, id)} последней строки служит
+ * курсором для следующей страницы.
+ */
+public record SessionView(Integer id, String userEmail, Instant expiryDate) {
+}
@@ -0,0 +1,9 @@
+package ru.stroy1click.auth.model;
+
+import java.time.Instant;
+
+/**
+ * Данные пользователя из проверенного access токена.
+ */
+public record VerifiedIdentity(String email, String role, Boolean emailConfirmed, Instant expiry) {
+}
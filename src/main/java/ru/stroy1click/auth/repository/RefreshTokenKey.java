@@ -0,0 +1,14 @@
+package ru.stroy1click.auth.repository;
+
+/**
+ * Ключи удаленной сессии: id для региона сущности и token_hash для региона natural id второго
+ * уровня кэша. Срок действия нужен для рассылки отзыва подписанного refresh токена.
+ */
+public interface RefreshTokenKey {
+
+    Integer getId();
+
+    String getTokenHash();
+
+    Long getExpiryEpochSecond();
+}
@@ -1,19 +1,121 @@
 package ru.stroy1click.auth.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.stroy1click.auth.entity.RefreshToken;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken,Integer> {
 
-    Optional<RefreshToken> findFirstByToken(String token);
+    /**
+     * Удаления написаны как native DELETE ... RETURNING, а не как JPQL bulk delete: bulk операция
+     * сбрасывает весь регион второго уровня кэша, а по возвращенным id вытесняются только
+     * удаленные записи. При {@code recordRevocation} удаленные действующие сессии тем же запросом
+     * записываются в журнал {@code revoked_sessions} (режим подписанных refresh токенов).
+     *
+     * @return ключи удаленных токенов
+     */
+    @Query(value = """
+            with deleted as (
+                delete from auth.refresh_tokens where token_hash = :tokenHash
+                returning id, token_hash, expiry_date
+            ), revoked as (
+                insert into auth.revoked_sessions (token_hash, expiry_date)
+                select token_hash, expiry_date from deleted
+                where :recordRevocation and expiry_date > localtimestamp
+                on conflict (token_hash) do nothing
+            )
+            select id, token_hash as tokenHash,
+                   extract(epoch from expiry_date::timestamptz)::bigint as expiryEpochSecond
+            from deleted
+            """, nativeQuery = true)
+    List<RefreshTokenKey> deleteByTokenHash(@Param("tokenHash") String tokenHash,
+                                            @Param("recordRevocation") boolean recordRevocation);
 
-    void deleteByToken(String token);
+    /**
+     * @return ключи удаленных токенов
+     */
+    @Query(value = """
+            with deleted as (
+                delete from auth.refresh_tokens where user_email = :userEmail
+                returning id, token_hash, expiry_date
+            ), revoked as (
+                insert into auth.revoked_sessions (token_hash, expiry_date)
+                select token_hash, expiry_date from deleted
+                where :recordRevocation and expiry_date > localtimestamp
+                on conflict (token_hash) do nothing
+            )
+            select id, token_hash as tokenHash,
+                   extract(epoch from expiry_date::timestamptz)::bigint as expiryEpochSecond
+            from deleted
+            """, nativeQuery = true)
+    List<RefreshTokenKey> deleteAllByUserEmail(@Param("userEmail") String userEmail,
+                                               @Param("recordRevocation") boolean recordRevocation);
 
-    Integer countByUserEmail(String userEmail);
+    /**
+     * Берет транзакционную advisory блокировку на сессии пользователя. Блокировка общая для всех
+     * нод, поэтому параллельные логины одного пользователя выполняются последовательно.
+     */
+    @Query(value = "select count(*) from (select pg_advisory_xact_lock(hashtextextended(:userEmail, 0))) l",
+            nativeQuery = true)
+    long lockSessionsByUserEmail(@Param("userEmail") String userEmail);
 
-    void deleteAllByUserEmail(String userEmail);
-}
\ No newline at end of file
+    @Query(value = """
+            select count(*) from auth.refresh_tokens
+            where user_email = :userEmail and expiry_date > localtimestamp
+            """, nativeQuery = true)
+    long countActiveByUserEmail(@Param("userEmail") String userEmail);
+
+    /**
+     * @return ключи удаленных токенов
+     */
+    @Query(value = """
+            with deleted as (
+                delete from auth.refresh_tokens
+                where (id, expiry_date) in (
+                    select id, expiry_date from auth.refresh_tokens
+                    where user_email = :userEmail and expiry_date > localtimestamp
+                    order by expiry_date
+                    limit :count
+                )
+                returning id, token_hash, expiry_date
+            ), revoked as (
+                insert into auth.revoked_sessions (token_hash, expiry_date)
+                select token_hash, expiry_date from deleted
+                where :recordRevocation
+                on conflict (token_hash) do nothing
+            )
+            select id, token_hash as tokenHash,
+                   extract(epoch from expiry_date::timestamptz)::bigint as expiryEpochSecond
+            from deleted
+            """, nativeQuery = true)
+    List<RefreshTokenKey> deleteOldestActiveByUserEmail(@Param("userEmail") String userEmail,
+                                                        @Param("count") long count,
+                                                        @Param("recordRevocation") boolean recordRevocation);
+
+    /**
+     * Продлевает активный токен одним UPDATE по индексу token_hash. Просроченный токен не
+     * продлевается. Новая дата истечения не может быть позже {@code issued_at + maxLifetimeSeconds},
+     * поэтому сессия ограничена сроком жизни с момента выдачи, сколько бы ее ни продлевали.
+     * Дата истечения при этом никогда не сокращается.
+     *
+     * @return id продленного токена или пустой Optional, если активный токен не найден
+     */
+    @Query(value = """
+            update auth.refresh_tokens
+            set expiry_date = greatest(expiry_date, least(
+                expiry_date + make_interval(secs => :extensionSeconds),
+                issued_at + make_interval(secs => :maxLifetimeSeconds)
+            ))
+            where token_hash = :tokenHash and expiry_date > localtimestamp
+            returning id
+            """, nativeQuery = true)
+    Optional<Integer> extendExpiryDateByTokenHash(@Param("tokenHash") String tokenHash,
+                                                  @Param("extensionSeconds") long extensionSeconds,
+                                                  @Param("maxLifetimeSeconds") long maxLifetimeSeconds);
+}
@@ -0,0 +1,29 @@
+package ru.stroy1click.auth.scheduler;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.stroy1click.auth.service.RefreshTokenMaintenanceService;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "refresh-token.maintenance", name = "enabled", havingValue = "true")
+public class RefreshTokenMaintenanceScheduler {
+
+    private final RefreshTokenMaintenanceService refreshTokenMaintenanceService;
+
+    @Scheduled(initialDelayString = "${refresh-token.maintenance.initial-delay}",
+            fixedDelayString = "${refresh-token.maintenance.interval}")
+    public void maintain() {
+        this.refreshTokenMaintenanceService.createUpcomingPartitions();
+        int droppedPartitions = this.refreshTokenMaintenanceService.dropExpiredPartitions();
+        int deletedTokens = this.refreshTokenMaintenanceService.deleteExpiredTokens();
+        int deletedRevocations = this.refreshTokenMaintenanceService.deleteExpiredRevocations();
+
+        log.info("maintain dropped {} partitions, deleted {} expired tokens and {} expired revocations",
+                droppedPartitions, deletedTokens, deletedRevocations);
+    }
+}
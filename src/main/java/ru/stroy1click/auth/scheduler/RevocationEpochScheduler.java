@@ -0,0 +1,28 @@
+package ru.stroy1click.auth.scheduler;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.stroy1click.auth.service.RevocationEpochService;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RevocationEpochScheduler {
+
+    private final RevocationEpochService revocationEpochService;
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.poll-interval}")
+    public void poll() {
+        int polled = this.revocationEpochService.pollEpochs();
+        if (polled > 0) log.debug("poll received {} revocation epochs", polled);
+    }
+
+    @Scheduled(initialDelayString = "${jwt.revocation.purge-interval}",
+            fixedDelayString = "${jwt.revocation.purge-interval}")
+    public void purge() {
+        int purged = this.revocationEpochService.purgeExpired();
+        if (purged > 0) log.debug("purge removed {} expired revocation epochs", purged);
+    }
+}
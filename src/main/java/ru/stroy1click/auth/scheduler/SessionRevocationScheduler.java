@@ -0,0 +1,29 @@
+package ru.stroy1click.auth.scheduler;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.stroy1click.auth.service.SessionRevocationService;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "refresh-token", name = "mode", havingValue = "SIGNED")
+public class SessionRevocationScheduler {
+
+    private final SessionRevocationService sessionRevocationService;
+
+    @Scheduled(fixedDelayString = "${refresh-token.signed.revocation.poll-interval}")
+    public void poll() {
+        int polled = this.sessionRevocationService.pollRevocations();
+        if (polled > 0) log.debug("poll received {} revoked sessions", polled);
+    }
+
+    @Scheduled(initialDelayString = "${refresh-token.signed.revocation.rebuild-interval}",
+            fixedDelayString = "${refresh-token.signed.revocation.rebuild-interval}")
+    public void rebuild() {
+        this.sessionRevocationService.rebuild();
+    }
+}
@@ -0,0 +1,14 @@
+package ru.stroy1click.auth.service;
+
+import java.time.Instant;
+
+public interface AccessTokenRevocationService {
+
+    boolean isRevoked(String jti);
+
+    void revoke(String jti, Instant expiry);
+
+    int pollRevocations();
+
+    int purgeExpired();
+}
@@ -9,9 +9,20 @@ public interface AuthService {
 
     void createUser(UserDto userDto);
 
+    /**
+     * Регистрация с ключом идемпотентности: повторы с тем же ключом и телом получают результат
+     * первого вызова, сервис пользователей вызывается один раз. Без ключа - как {@link #createUser(UserDto)}.
+     */
+    void createUser(UserDto userDto, String idempotencyKey);
+
     String generateToken(String email);
 
-    void logout(RefreshTokenRequest refreshTokenRequest);
+    boolean logout(RefreshTokenRequest refreshTokenRequest, String accessToken);
+
+    /**
+     * Удаляет все refresh токены пользователя и отзывает все выданные ему access токены.
+     */
+    void logoutOnAllDevices(String email);
 
     UserDto login(AuthRequest authRequest);
 }
@@ -2,11 +2,18 @@ package ru.stroy1click.auth.service;
 
 import org.springframework.security.core.GrantedAuthority;
 import ru.stroy1click.auth.dto.UserDto;
+import ru.stroy1click.auth.model.RefreshTokenClaims;
+import ru.stroy1click.auth.model.RouteClass;
+import ru.stroy1click.auth.model.VerifiedIdentity;
 
+import java.time.Duration;
 import java.util.Collection;
+import java.util.Optional;
 
 public interface JwtService {
 
+    Duration ACCESS_TOKEN_LIFETIME = Duration.ofMinutes(300);
+
     String extractEmail(String jwt);
 
     String generate(UserDto user);
@@ -14,4 +21,27 @@ public interface JwtService {
     Collection<? extends GrantedAuthority> extractRole(String jwt);
 
     boolean validate(String jwt, String originalUri);
+
+    /**
+     * То же, что {@link #validate(String, String)}, но возвращает данные пользователя из токена.
+     *
+     * @return пустой Optional, если токен недействителен, отозван или роль не подходит для {@code routeClass}
+     */
+    Optional<VerifiedIdentity> verify(String jwt, RouteClass routeClass);
+
+    /**
+     * Добавляет access токен в denylist до истечения его срока действия. Недействительный или
+     * уже истекший токен игнорируется.
+     */
+    void revoke(String jwt);
+
+    String generateRefreshToken(RefreshTokenClaims claims);
+
+    /**
+     * Проверяет подпись refresh токена. Просроченный токен тоже возвращается, срок действия
+     * проверяет вызывающий код.
+     *
+     * @return пустой Optional, если подпись неверна или это не refresh токен
+     */
+    Optional<RefreshTokenClaims> parseRefreshToken(String token);
 }
@@ -0,0 +1,12 @@
+package ru.stroy1click.auth.service;
+
+public interface RefreshTokenMaintenanceService {
+
+    void createUpcomingPartitions();
+
+    int dropExpiredPartitions();
+
+    int deleteExpiredTokens();
+
+    int deleteExpiredRevocations();
+}
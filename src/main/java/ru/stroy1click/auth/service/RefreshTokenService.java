@@ -14,9 +14,9 @@ public interface RefreshTokenService {
 
     Optional<RefreshToken> findByToken(String token);
 
-    void delete(String token);
+    boolean delete(String token);
 
-    void deleteAll(String email);
+    int deleteAll(String email);
 
     void extendTheExpirationDate(RefreshTokenRequest request);
 
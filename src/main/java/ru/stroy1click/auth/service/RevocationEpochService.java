@@ -0,0 +1,27 @@
+package ru.stroy1click.auth.service;
+
+import java.time.Instant;
+import java.util.Collection;
+
+/**
+ * Эпохи отзыва: все access токены пользователя или роли, выданные до момента отзыва, становятся
+ * недействительными без перечисления самих токенов.
+ */
+public interface RevocationEpochService {
+
+    /**
+     * Проверка идет только по памяти: два поиска в хэш-таблицах.
+     */
+    boolean isRevoked(String email, String role, Instant issuedAt);
+
+    /**
+     * Отзывает токены всех пользователей из списка одним запросом к базе.
+     */
+    void revokeUsers(Collection<String> emails);
+
+    void revokeRole(String role);
+
+    int pollEpochs();
+
+    int purgeExpired();
+}
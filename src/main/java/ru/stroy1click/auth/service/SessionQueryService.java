@@ -0,0 +1,29 @@
+package ru.stroy1click.auth.service;
+
+import ru.stroy1click.auth.model.SessionCursor;
+import ru.stroy1click.auth.model.SessionView;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Списки сессий для администраторов. Строки передаются в {@code consumer} страницами в порядке
+ * {@code (expiryDate, id)}; в памяти одновременно не больше одной страницы.
+ */
+public interface SessionQueryService {
+
+    /**
+     * Активные сессии пользователя, начиная после {@code after} или с текущего момента.
+     *
+     * @return число переданных строк
+     */
+    long streamByUserEmail(String email, SessionCursor after, long limit, Consumer<List<SessionView>> consumer);
+
+    /**
+     * Сессии с {@code from <= expiryDate < to}, начиная после {@code after}.
+     *
+     * @return число переданных строк
+     */
+    long streamByExpiryRange(Instant from, Instant to, SessionCursor after, long limit, Consumer<List<SessionView>> consumer);
+}
@@ -0,0 +1,14 @@
+package ru.stroy1click.auth.service;
+
+import java.time.Instant;
+
+public interface SessionRevocationService {
+
+    boolean isRevoked(String tokenHash);
+
+    void revoke(String tokenHash, Instant expiry);
+
+    int pollRevocations();
+
+    int rebuild();
+}
@@ -0,0 +1,134 @@
+package ru.stroy1click.auth.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import ru.stroy1click.auth.invalidation.InvalidationBus;
+import ru.stroy1click.auth.invalidation.InvalidationEvent;
+import ru.stroy1click.auth.invalidation.InvalidationListener;
+import ru.stroy1click.auth.service.AccessTokenRevocationService;
+import ru.stroy1click.auth.startup.TrainingRun;
+import ru.stroy1click.auth.util.RevocationSet;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Denylist access токенов по jti. Отзыв пишется в {@code auth.revoked_access_tokens} и рассылается
+ * остальным нодам через {@link InvalidationBus}; опрос по {@code revoked_at} подбирает потерянные
+ * уведомления. Проверка в горячем пути идет только по памяти.
+ * <p>
+ * Denylist загружается при старте контекста, до запуска HTTP и gRPC серверов и до готовности
+ * сервиса, поэтому проверка токена никогда не ждет базу.
+ */
+@Slf4j
+@Service
+public class AccessTokenRevocationServiceImpl implements AccessTokenRevocationService, InvalidationListener,
+        SmartInitializingSingleton {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final InvalidationBus invalidationBus;
+
+    private final RevocationSet denylist;
+
+    private final Duration pollOverlap;
+
+    private final boolean trainingRun;
+
+    private volatile LocalDateTime pollFrom;
+
+    public AccessTokenRevocationServiceImpl(JdbcTemplate jdbcTemplate,
+                                            InvalidationBus invalidationBus,
+                                            @Value("${jwt.revocation.expected-revocations}") int expectedRevocations,
+                                            @Value("${jwt.revocation.false-positive-probability}") double falsePositiveProbability,
+                                            @Value("${jwt.revocation.poll-overlap}") Duration pollOverlap,
+                                            @Value(TrainingRun.CONTEXT_EXIT_PROPERTY) String contextExit){
+        this.jdbcTemplate = jdbcTemplate;
+        this.invalidationBus = invalidationBus;
+        this.denylist = new RevocationSet(expectedRevocations, falsePositiveProbability);
+        this.pollOverlap = pollOverlap;
+        this.trainingRun = TrainingRun.isActive(contextExit);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!this.trainingRun) load();
+    }
+
+    @Override
+    public boolean isRevoked(String jti) {
+        return this.denylist.contains(jti);
+    }
+
+    @Override
+    public void revoke(String jti, Instant expiry) {
+        this.jdbcTemplate.update("""
+                insert into auth.revoked_access_tokens (jti, expiry_date) values (?, ?)
+                on conflict (jti) do nothing
+                """, jti, Timestamp.from(expiry));
+        this.denylist.add(jti, expiry);
+        this.invalidationBus.publish(new InvalidationEvent(InvalidationEvent.Type.ACCESS_TOKEN_REVOKED, jti, expiry));
+    }
+
+    @Override
+    public int pollRevocations() {
+        if (this.pollFrom == null) return load();
+
+        LocalDateTime from = this.pollFrom;
+        List<Map<String, Object>> rows = this.jdbcTemplate.queryForList("""
+                select jti, expiry_date, revoked_at from auth.revoked_access_tokens
+                where revoked_at >= ? and expiry_date > localtimestamp
+                """, Timestamp.valueOf(from));
+
+        LocalDateTime latest = from.plus(this.pollOverlap);
+        for (Map<String, Object> row : rows) {
+            this.denylist.add((String) row.get("jti"), ((Timestamp) row.get("expiry_date")).toInstant());
+            LocalDateTime revokedAt = ((Timestamp) row.get("revoked_at")).toLocalDateTime();
+            if (revokedAt.isAfter(latest)) latest = revokedAt;
+        }
+        this.pollFrom = latest.minus(this.pollOverlap);
+        return rows.size();
+    }
+
+    @Override
+    public int purgeExpired() {
+        return this.denylist.purgeExpired();
+    }
+
+    @Override
+    public void onInvalidation(List<InvalidationEvent> events) {
+        events.stream()
+                .filter(event -> event.type() == InvalidationEvent.Type.ACCESS_TOKEN_REVOKED)
+                .forEach(event -> this.denylist.add(event.key(), event.expiry()));
+    }
+
+    /**
+     * Уведомления за время разрыва потеряны, поэтому таблица перечитывается целиком. Denylist
+     * только дополняется, поэтому проверки продолжают работать во время перечитывания.
+     */
+    @Override
+    public void onResync() {
+        load();
+    }
+
+    private synchronized int load() {
+        LocalDateTime from = this.jdbcTemplate.queryForObject("select localtimestamp", LocalDateTime.class)
+                .minus(this.pollOverlap);
+        this.jdbcTemplate.query("""
+                select jti, expiry_date from auth.revoked_access_tokens
+                where expiry_date > localtimestamp
+                """, rs -> {
+            this.denylist.add(rs.getString("jti"), rs.getTimestamp("expiry_date").toInstant());
+        });
+        this.pollFrom = from;
+        log.info("load loaded {} revoked access tokens", this.denylist.size());
+        return this.denylist.size();
+    }
+}
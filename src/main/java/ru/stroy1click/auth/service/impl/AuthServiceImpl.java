@@ -1,5 +1,7 @@
 package ru.stroy1click.auth.service.impl;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.MessageSource;
@@ -8,11 +10,16 @@ import org.springframework.stereotype.Service;
 import ru.stroy1click.auth.client.UserClient;
 import ru.stroy1click.auth.dto.UserDto;
 import ru.stroy1click.auth.exception.ValidationException;
+import ru.stroy1click.auth.idempotency.IdempotencyStore;
 import ru.stroy1click.auth.model.*;
 import ru.stroy1click.auth.service.AuthService;
 import ru.stroy1click.auth.service.JwtService;
 import ru.stroy1click.auth.service.RefreshTokenService;
+import ru.stroy1click.auth.service.RevocationEpochService;
+import ru.stroy1click.auth.util.LogMaskUtils;
+import ru.stroy1click.auth.util.TokenDigestUtils;
 
+import java.util.List;
 import java.util.Locale;
 
 @Slf4j
@@ -26,10 +33,16 @@ public class AuthServiceImpl implements AuthService {
 
     private final RefreshTokenService refreshTokenService;
 
+    private final RevocationEpochService revocationEpochService;
+
     private final PasswordEncoder passwordEncoder;
 
     private final MessageSource messageSource;
 
+    private final MeterRegistry meterRegistry;
+
+    private final IdempotencyStore idempotencyStore;
+
     @Override
     public void createUser(UserDto userDto) {
         log.info("createUser");
@@ -37,19 +50,46 @@ public class AuthServiceImpl implements AuthService {
         this.userClient.create(userDto);
     }
 
+    @Override
+    public void createUser(UserDto userDto, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            createUser(userDto);
+            return;
+        }
+        log.info("createUser with idempotency key");
+
+        this.idempotencyStore.execute("registration:" + idempotencyKey, fingerprint(userDto), () -> {
+            this.userClient.create(userDto);
+            return Boolean.TRUE;
+        });
+    }
+
     @Override
     public String generateToken(String email) {
-        log.info("generate {}", email);
+        log.info("generate {}", LogMaskUtils.email(email));
         UserDto userDto = this.userClient.getByEmail(email);
 
         return this.jwtService.generate(userDto);
     }
 
+    /**
+     * Удаляет refresh токен и отзывает access токен, с которым пришел запрос, чтобы он перестал
+     * проходить {@code /validate} до истечения своего срока.
+     */
     @Override
-    public void logout(RefreshTokenRequest refreshTokenRequest) {
-        log.info("logout {}", refreshTokenRequest);
+    public boolean logout(RefreshTokenRequest refreshTokenRequest, String accessToken) {
+        log.info("logout {}", LogMaskUtils.token(refreshTokenRequest.getRefreshToken()));
 
-        this.refreshTokenService.delete(refreshTokenRequest.getRefreshToken());
+        if (accessToken != null) this.jwtService.revoke(accessToken);
+        return this.refreshTokenService.delete(refreshTokenRequest.getRefreshToken());
+    }
+
+    @Override
+    public void logoutOnAllDevices(String email) {
+        log.info("logoutOnAllDevices {}", LogMaskUtils.email(email));
+
+        this.refreshTokenService.deleteAll(email);
+        this.revocationEpochService.revokeUsers(List.of(email));
     }
 
     @Override
@@ -57,7 +97,7 @@ public class AuthServiceImpl implements AuthService {
         log.info("login");
         UserDto userDto = this.userClient.getByEmail(authRequest.getEmail());
 
-        if(this.passwordEncoder.matches(authRequest.getPassword(), userDto.getPassword())){
+        if(passwordMatches(authRequest.getPassword(), userDto.getPassword())){
             return userDto;
         } else{
             throw new ValidationException(
@@ -69,4 +109,23 @@ public class AuthServiceImpl implements AuthService {
             );
         }
     }
+
+    /**
+     * Проверка пароля - самая дорогая по CPU часть логина, поэтому время меряется отдельно.
+     */
+    private boolean passwordMatches(String rawPassword, String encodedPassword) {
+        Timer.Sample sample = Timer.start(this.meterRegistry);
+        boolean matches = this.passwordEncoder.matches(rawPassword, encodedPassword);
+        sample.stop(Timer.builder("auth.password.match")
+                .tag("outcome", matches ? "match" : "mismatch")
+                .publishPercentileHistogram()
+                .register(this.meterRegistry));
+        return matches;
+    }
+
+    private static String fingerprint(UserDto userDto) {
+        return TokenDigestUtils.digest(String.join("\n",
+                userDto.getEmail(), userDto.getFirstName(), userDto.getLastName(),
+                userDto.getPassword(), String.valueOf(userDto.getRole())));
+    }
 }
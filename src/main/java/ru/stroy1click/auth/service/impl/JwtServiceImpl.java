@@ -1,34 +1,57 @@
 package ru.stroy1click.auth.service.impl;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Service;
 import ru.stroy1click.auth.dto.UserDto;
+import ru.stroy1click.auth.model.RefreshTokenClaims;
+import ru.stroy1click.auth.model.RouteClass;
+import ru.stroy1click.auth.model.VerifiedIdentity;
+import ru.stroy1click.auth.service.AccessTokenRevocationService;
 import ru.stroy1click.auth.service.JwtService;
+import ru.stroy1click.auth.service.RevocationEpochService;
 
 import java.security.Key;
 import java.util.*;
 import java.util.function.Function;
 
 @Service
+@RequiredArgsConstructor
 public class JwtServiceImpl implements JwtService {
 
+    private static final String SESSION_ID_CLAIM = "sid";
+
+    private static final String TOKEN_TYPE_CLAIM = "typ";
+
+    private static final String REFRESH_TOKEN_TYPE = "refresh";
+
     @Value(value = "${jwt.secret}")
     public String SECRET;
 
+    @Value(value = "${refresh-token.signed.secret}")
+    private String refreshTokenSecret;
+
+    private final AccessTokenRevocationService accessTokenRevocationService;
+
+    private final RevocationEpochService revocationEpochService;
+
     @Override
     public String extractEmail(String jwt) {
         return extractClaim(jwt, Claims::getSubject);
     }
 
     @Override
+    @Timed(value = "auth.jwt.sign", histogram = true)
     public String generate(UserDto user) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("role", user.getRole());
@@ -43,34 +66,96 @@ public class JwtServiceImpl implements JwtService {
     }
 
     @Override
+    @Timed(value = "auth.jwt.verify", histogram = true)
     public boolean validate(String jwt, String originalUri) {
-        try {
-            Collection<? extends GrantedAuthority> authorities = extractRole(jwt);
-
-            boolean hasRole = authorities.stream().anyMatch(auth -> {
-                String role = auth.getAuthority();
-                if(originalUri.startsWith("/api/v1/users") || originalUri.startsWith("/api/v1/orders")) {
-                    return role.equals("ROLE_USER") || role.equals("ROLE_ADMIN");
-                } else {
-                    return role.equals("ROLE_ADMIN");
-                }
-            });
+        return verify(jwt, RouteClass.ofProtected(originalUri)).isPresent();
+    }
 
+    @Override
+    @Timed(value = "auth.jwt.verify", histogram = true)
+    public Optional<VerifiedIdentity> verify(String jwt, RouteClass routeClass) {
+        try {
             Claims claims = extractAllClaims(jwt);
+            String role = claims.get("role").toString();
+
+            boolean hasRole = routeClass.permits(role);
             boolean notExpired = claims.getExpiration().after(new Date());
 
-            return hasRole && notExpired;
-        } catch (JwtException e) {
-            return false;
+            if (!hasRole || !notExpired || isRevoked(claims)) return Optional.empty();
+
+            return Optional.of(new VerifiedIdentity(claims.getSubject(), role,
+                    claims.get("emailConfirmed", Boolean.class), claims.getExpiration().toInstant()));
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void revoke(String jwt) {
+        Claims claims;
+        try {
+            claims = extractAllClaims(jwt);
+        } catch (JwtException | IllegalArgumentException e) {
+            return;
+        }
+        if (claims.getId() != null) {
+            this.accessTokenRevocationService.revoke(claims.getId(), claims.getExpiration().toInstant());
         }
     }
 
+    @Override
+    @Timed(value = "auth.jwt.sign", histogram = true)
+    public String generateRefreshToken(RefreshTokenClaims claims) {
+        return Jwts.builder()
+                .setSubject(claims.email())
+                .claim(SESSION_ID_CLAIM, claims.sessionId())
+                .claim(TOKEN_TYPE_CLAIM, REFRESH_TOKEN_TYPE)
+                .setIssuedAt(new Date(System.currentTimeMillis()))
+                .setExpiration(Date.from(claims.expiry()))
+                .signWith(getRefreshTokenSignKey(), SignatureAlgorithm.HS256).compact();
+    }
+
+    @Override
+    @Timed(value = "auth.jwt.verify", histogram = true)
+    public Optional<RefreshTokenClaims> parseRefreshToken(String token) {
+        Claims claims;
+        try {
+            claims = Jwts.parserBuilder()
+                    .setSigningKey(getRefreshTokenSignKey())
+                    .build()
+                    .parseClaimsJws(token)
+                    .getBody();
+        } catch (ExpiredJwtException e) {
+            claims = e.getClaims();
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+
+        String sessionId = claims.get(SESSION_ID_CLAIM, String.class);
+        if (!REFRESH_TOKEN_TYPE.equals(claims.get(TOKEN_TYPE_CLAIM)) || sessionId == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new RefreshTokenClaims(sessionId, claims.getSubject(), claims.getExpiration().toInstant()));
+    }
+
+    /**
+     * Токены, выпущенные до появления jti, отозвать нельзя, они доживают свой срок.
+     */
+    private boolean isRevoked(Claims claims) {
+        if (claims.getId() != null && this.accessTokenRevocationService.isRevoked(claims.getId())) return true;
+
+        Date issuedAt = claims.getIssuedAt();
+        return issuedAt != null && this.revocationEpochService.isRevoked(
+                claims.getSubject(), Objects.toString(claims.get("role"), null), issuedAt.toInstant());
+    }
+
     private String createToken(Map<String, Object> claims, UserDto user) {
         return Jwts.builder()
                 .setClaims(claims)
+                .setId(UUID.randomUUID().toString())
                 .setSubject(user.getEmail())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 300))
+                .setExpiration(new Date(System.currentTimeMillis() + ACCESS_TOKEN_LIFETIME.toMillis()))
                 .signWith(getSignKey(), SignatureAlgorithm.HS256).compact();
     }
 
@@ -92,4 +177,9 @@ public class JwtServiceImpl implements JwtService {
         byte[] keyBytes = Decoders.BASE64.decode(SECRET);
         return Keys.hmacShaKeyFor(keyBytes);
     }
+
+    private Key getRefreshTokenSignKey() {
+        byte[] keyBytes = Decoders.BASE64.decode(this.refreshTokenSecret);
+        return Keys.hmacShaKeyFor(keyBytes);
+    }
 }
@@ -0,0 +1,148 @@
+package ru.stroy1click.auth.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.stroy1click.auth.service.JwtService;
+import ru.stroy1click.auth.service.RefreshTokenMaintenanceService;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Service
+public class RefreshTokenMaintenanceServiceImpl implements RefreshTokenMaintenanceService {
+
+    private static final String PARTITION_PREFIX = "refresh_tokens_p";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int partitionsAhead;
+
+    private final int batchSize;
+
+    private final int maxBatches;
+
+    private final Duration lockTimeout;
+
+    public RefreshTokenMaintenanceServiceImpl(JdbcTemplate jdbcTemplate,
+                                              TransactionTemplate transactionTemplate,
+                                              @Value("${refresh-token.maintenance.partitions-ahead}") int partitionsAhead,
+                                              @Value("${refresh-token.maintenance.batch-size}") int batchSize,
+                                              @Value("${refresh-token.maintenance.max-batches}") int maxBatches,
+                                              @Value("${refresh-token.maintenance.lock-timeout}") Duration lockTimeout){
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.partitionsAhead = partitionsAhead;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.lockTimeout = lockTimeout;
+    }
+
+    /**
+     * Создает помесячные партиции на {@code partitions-ahead} месяцев вперед, чтобы новые токены
+     * никогда не попадали в default партицию. Границы месяцев считаются в базе от
+     * {@code localtimestamp}, как и сроки действия токенов, поэтому часовой пояс JVM на них не влияет.
+     */
+    @Override
+    public void createUpcomingPartitions() {
+        List<Map<String, Object>> months = this.jdbcTemplate.queryForList("""
+                select to_char(m, 'YYYY_MM') as suffix,
+                       to_char(m, 'YYYY-MM-DD') as from_bound,
+                       to_char(m + interval '1 month', 'YYYY-MM-DD') as to_bound
+                from generate_series(
+                    date_trunc('month', localtimestamp),
+                    date_trunc('month', localtimestamp) + make_interval(months => ?),
+                    interval '1 month'
+                ) m
+                """, this.partitionsAhead);
+        for (Map<String, Object> month : months) {
+            String sql = "create table if not exists auth.%s partition of auth.refresh_tokens for values from ('%s') to ('%s')"
+                    .formatted(PARTITION_PREFIX + month.get("suffix"), month.get("from_bound"), month.get("to_bound"));
+            executeWithLockTimeout(sql);
+        }
+    }
+
+    /**
+     * Удаляет партиции, верхняя граница которых уже в прошлом: все токены в них просрочены.
+     * Текущий месяц определяется в базе через {@code date_trunc('month', localtimestamp)}.
+     * Удаление партиции требует короткой блокировки родительской таблицы, поэтому выполняется
+     * с lock_timeout и просто откладывается до следующего запуска, если блокировку взять не удалось.
+     */
+    @Override
+    public int dropExpiredPartitions() {
+        List<String> partitions = this.jdbcTemplate.queryForList("""
+                select c.relname from pg_inherits i
+                join pg_class c on c.oid = i.inhrelid
+                where i.inhparent = 'auth.refresh_tokens'::regclass
+                  and c.relname ~ '^refresh_tokens_p[0-9]{4}_[0-9]{2}$'
+                  and c.relname < 'refresh_tokens_p' || to_char(date_trunc('month', localtimestamp), 'YYYY_MM')
+                """, String.class);
+
+        int dropped = 0;
+        for (String partition : partitions) {
+            if (executeWithLockTimeout("drop table if exists auth." + partition)) {
+                log.info("dropExpiredPartitions dropped {}", partition);
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Удаляет просроченные токены, оставшиеся в живых партициях, пачками по {@code batch-size}
+     * строк. Каждая пачка - отдельная короткая транзакция, занятые строки пропускаются.
+     */
+    @Override
+    public int deleteExpiredTokens() {
+        int deleted = 0;
+        for (int i = 0; i < this.maxBatches; i++) {
+            int affected = this.jdbcTemplate.update("""
+                    delete from auth.refresh_tokens
+                    where (id, expiry_date) in (
+                        select id, expiry_date from auth.refresh_tokens
+                        where expiry_date < localtimestamp
+                        limit ?
+                        for update skip locked
+                    )
+                    """, this.batchSize);
+            deleted += affected;
+            if (affected < this.batchSize) break;
+        }
+        return deleted;
+    }
+
+    /**
+     * Удаляет из журналов отзыва сессии и access токены с истекшим сроком: такие токены
+     * отклоняются по exp и без журнала. Эпоха отзыва удаляется, когда истекли все токены, выданные
+     * до нее.
+     */
+    @Override
+    public int deleteExpiredRevocations() {
+        return this.jdbcTemplate.update("delete from auth.revoked_sessions where expiry_date < localtimestamp")
+                + this.jdbcTemplate.update("delete from auth.revoked_access_tokens where expiry_date < localtimestamp")
+                + this.jdbcTemplate.update("""
+                        delete from auth.revocation_epochs
+                        where not_before < localtimestamp - make_interval(secs => ?)
+                        """, JwtService.ACCESS_TOKEN_LIFETIME.toSeconds());
+    }
+
+    private boolean executeWithLockTimeout(String sql) {
+        try {
+            this.transactionTemplate.executeWithoutResult(status -> {
+                this.jdbcTemplate.execute("set local lock_timeout = " + this.lockTimeout.toMillis());
+                this.jdbcTemplate.execute(sql);
+            });
+            return true;
+        } catch (DataAccessException e) {
+            log.warn("executeWithLockTimeout skipped: {}", e.getMessage());
+            return false;
+        }
+    }
+}
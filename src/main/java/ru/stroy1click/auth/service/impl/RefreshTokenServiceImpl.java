@@ -2,33 +2,46 @@ package ru.stroy1click.auth.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.MessageSource;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import ru.stroy1click.auth.client.UserClient;
 import ru.stroy1click.auth.dto.UserDto;
 import ru.stroy1click.auth.exception.NotFoundException;
 import ru.stroy1click.auth.exception.ValidationException;
 import ru.stroy1click.auth.model.JwtResponse;
 import ru.stroy1click.auth.entity.RefreshToken;
+import ru.stroy1click.auth.model.RefreshTokenClaims;
+import ru.stroy1click.auth.model.RefreshTokenMode;
 import ru.stroy1click.auth.model.RefreshTokenRequest;
-import ru.stroy1click.auth.repository.RefreshTokenRepository;
 import ru.stroy1click.auth.service.JwtService;
 import ru.stroy1click.auth.service.RefreshTokenService;
+import ru.stroy1click.auth.service.SessionRevocationService;
+import ru.stroy1click.auth.store.RefreshTokenStore;
+import ru.stroy1click.auth.store.RefreshTokenWriteBuffer;
+import ru.stroy1click.auth.store.RefreshTokenWriter;
+import ru.stroy1click.auth.util.TokenDigestUtils;
+import ru.stroy1click.auth.util.LogMaskUtils;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
 import java.util.UUID;
 
+/**
+ * Сервис не открывает транзакций: каждое обращение к базе идет в короткой транзакции
+ * {@link RefreshTokenStore} или {@link RefreshTokenWriter}, поэтому соединение из пула не
+ * удерживается во время вызовов {@link UserClient}.
+ */
 @Service
 @Slf4j
-@Transactional
 @RequiredArgsConstructor
 public class RefreshTokenServiceImpl implements RefreshTokenService {
 
-    private final RefreshTokenRepository refreshTokenRepository;
+    private final RefreshTokenStore refreshTokenStore;
 
     private final UserClient userClient;
 
@@ -36,95 +49,163 @@ public class RefreshTokenServiceImpl implements RefreshTokenService {
 
     private final JwtService jwtService;
 
+    private final RefreshTokenWriter refreshTokenWriter;
+
+    private final ObjectProvider<RefreshTokenWriteBuffer> refreshTokenWriteBuffer;
+
+    private final SessionRevocationService sessionRevocationService;
+
+    @Value("${refresh-token.mode}")
+    private RefreshTokenMode mode;
+
+    @Value("${refresh-token.extension.step}")
+    private Duration extensionStep;
+
+    @Value("${refresh-token.extension.max-lifetime}")
+    private Duration maxLifetime;
+
     /**
-     * Создает новый refresh токен для пользователя, идентифицируемого по email. Если у пользователя
-     * более 6 активных сессий, выбрасывает исключение валидации.
+     * Создает новый refresh токен для пользователя, идентифицируемого по email. Проверка лимита
+     * активных сессий и вставка выполняются {@link RefreshTokenWriter} в собственной транзакции,
+     * при включенном буфере записи - вместе с параллельными логинами одной пачкой. В режиме
+     * {@code SIGNED} клиенту выдается JWT с id сессии, который живет {@code max-lifetime}: такой
+     * токен нельзя продлить без перевыпуска.
      */
     @Override
     public RefreshToken createRefreshToken(String email) {
-        log.info("createRefreshToken {}", email);
+        log.info("createRefreshToken {}", LogMaskUtils.email(email));
 
+        String sessionId = UUID.randomUUID().toString();
+        Instant issuedAt = Instant.now();
+        Instant expiryDate = this.mode == RefreshTokenMode.SIGNED
+                ? issuedAt.plus(this.maxLifetime)
+                : issuedAt.plusSeconds(600000);
         RefreshToken refreshToken = RefreshToken.builder()
                 .userEmail(email)
-                .token(UUID.randomUUID().toString())
-                .expiryDate(Instant.now().plusSeconds(600000))
+                .token(sessionId)
+                .tokenHash(TokenDigestUtils.digest(sessionId))
+                .expiryDate(expiryDate)
+                .issuedAt(issuedAt)
                 .build();
 
-        if(this.refreshTokenRepository.countByUserEmail(email) <= 6){
-            return this.refreshTokenRepository.save(refreshToken);
-        } else {
-            throw new ValidationException(
-                    this.messageSource.getMessage(
-                            "error.refresh_token.max_session",
-                            null,
-                            Locale.getDefault()
-                    )
-            );
-        }
+        RefreshTokenWriteBuffer writeBuffer = this.refreshTokenWriteBuffer.getIfAvailable();
+        RefreshToken saved = writeBuffer != null
+                ? writeBuffer.write(refreshToken)
+                : this.refreshTokenWriter.write(List.of(refreshToken)).get(0).getOrThrow();
+        saved.setToken(this.mode == RefreshTokenMode.SIGNED
+                ? this.jwtService.generateRefreshToken(new RefreshTokenClaims(sessionId, email, expiryDate))
+                : sessionId);
+        return saved;
     }
 
     @Override
     public Optional<RefreshToken> findByToken(String token) {
-        log.info("findByToken {}", token);
+        log.info("findByToken {}", LogMaskUtils.token(token));
 
-        return this.refreshTokenRepository.findFirstByToken(token);
+        return tokenHashOf(token).flatMap(this.refreshTokenStore::findByTokenHash);
     }
 
     @Override
-    public void delete(String token) {
-        log.info("delete {}", token);
+    public boolean delete(String token) {
+        log.info("delete {}", LogMaskUtils.token(token));
+
+        if (this.mode == RefreshTokenMode.SIGNED) {
+            Optional<RefreshTokenClaims> claims = this.jwtService.parseRefreshToken(token);
+            if (claims.isEmpty()) return false;
 
-        this.refreshTokenRepository.deleteByToken(token);
+            String tokenHash = TokenDigestUtils.digest(claims.get().sessionId());
+            this.sessionRevocationService.revoke(tokenHash, claims.get().expiry());
+            return this.refreshTokenStore.deleteByTokenHash(tokenHash);
+        }
+
+        return this.refreshTokenStore.deleteByTokenHash(TokenDigestUtils.digest(token));
     }
 
     @Override
-    public void deleteAll(String email) {
-        log.info("deleteAll for user with {} id", email);
+    public int deleteAll(String email) {
+        log.info("deleteAll for user with {} id", LogMaskUtils.email(email));
 
-        this.refreshTokenRepository.deleteAllByUserEmail(email);
+        return this.refreshTokenStore.deleteAllByUserEmail(email);
     }
 
+    /**
+     * Подписанный токен уже выдан на максимальный срок жизни сессии, поэтому в режиме
+     * {@code SIGNED} он только проверяется.
+     */
     @Override
     public void extendTheExpirationDate(RefreshTokenRequest request) {
-        RefreshToken refreshToken = this.refreshTokenRepository.findFirstByToken(request.getRefreshToken())
-                        .orElseThrow(
-                                () -> new NotFoundException(
-                                        this.messageSource.getMessage("error.refresh_token.not_found",
-                                                new Object[]{request},
-                                                Locale.getDefault())
-                                )
-                        );
-        refreshToken.setExpiryDate(refreshToken.getExpiryDate()
-                .plus(Duration.ofDays(7)));
-        this.refreshTokenRepository.save(refreshToken);
+        if (this.mode == RefreshTokenMode.SIGNED) {
+            verifySignedToken(request.getRefreshToken());
+            return;
+        }
+
+        boolean extended = this.refreshTokenStore.extend(
+                TokenDigestUtils.digest(request.getRefreshToken()),
+                this.extensionStep,
+                this.maxLifetime
+        );
+
+        if(!extended){
+            throw notFound(request);
+        }
     }
 
+    /**
+     * Поиск сессии выполняется в read-only транзакции хранилища, вызов сервиса пользователей -
+     * уже после ее завершения. Подписанный токен проверяется без обращения к базе.
+     */
     @Override
     public JwtResponse refreshAccessToken(RefreshTokenRequest request) {
-        log.info("refreshAccessToken {}", request);
-        RefreshToken refreshToken = this.refreshTokenRepository.findFirstByToken(request.getRefreshToken())
-                .orElseThrow(
-                        () -> new NotFoundException(
-                                this.messageSource.getMessage(
-                                        "error.refresh_token.not_found",
-                                        new Object[]{request.getRefreshToken()},
-                                        Locale.getDefault()
-                                )
-                        )
-                );
-
-        verifyExpiration(refreshToken);
-
-        UserDto userDto = this.userClient.getByEmail(refreshToken.getUserEmail());
+        log.info("refreshAccessToken {}", LogMaskUtils.token(request.getRefreshToken()));
+
+        String email;
+        if (this.mode == RefreshTokenMode.SIGNED) {
+            email = verifySignedToken(request.getRefreshToken()).email();
+        } else {
+            RefreshToken refreshToken = this.refreshTokenStore.findByTokenHash(TokenDigestUtils.digest(request.getRefreshToken()))
+                    .orElseThrow(() -> notFound(request.getRefreshToken()));
+            verifyExpiration(refreshToken.getExpiryDate());
+            email = refreshToken.getUserEmail();
+        }
+
+        UserDto userDto = this.userClient.getByEmail(email);
 
         return JwtResponse.builder()
                 .accessToken(this.jwtService.generate(userDto))
-                .refreshToken(refreshToken.getToken())
+                .refreshToken(request.getRefreshToken())
                 .build();
     }
 
-    private void verifyExpiration(RefreshToken token) {
-        if (token.getExpiryDate().compareTo(Instant.now()) < 0) {
+    private Optional<String> tokenHashOf(String token) {
+        if (this.mode == RefreshTokenMode.SIGNED) {
+            return this.jwtService.parseRefreshToken(token)
+                    .map(claims -> TokenDigestUtils.digest(claims.sessionId()));
+        }
+        return Optional.of(TokenDigestUtils.digest(token));
+    }
+
+    private RefreshTokenClaims verifySignedToken(String token) {
+        RefreshTokenClaims claims = this.jwtService.parseRefreshToken(token)
+                .orElseThrow(() -> notFound(token));
+        verifyExpiration(claims.expiry());
+        if (this.sessionRevocationService.isRevoked(TokenDigestUtils.digest(claims.sessionId()))) {
+            throw notFound(token);
+        }
+        return claims;
+    }
+
+    private NotFoundException notFound(Object token) {
+        return new NotFoundException(
+                this.messageSource.getMessage(
+                        "error.refresh_token.not_found",
+                        new Object[]{token},
+                        Locale.getDefault()
+                )
+        );
+    }
+
+    private void verifyExpiration(Instant expiryDate) {
+        if (expiryDate.compareTo(Instant.now()) < 0) {
             throw new ValidationException(
                     this.messageSource.getMessage(
                             "error.refresh_token.expired",
@@ -0,0 +1,187 @@
+package ru.stroy1click.auth.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import ru.stroy1click.auth.invalidation.InvalidationBus;
+import ru.stroy1click.auth.invalidation.InvalidationEvent;
+import ru.stroy1click.auth.invalidation.InvalidationListener;
+import ru.stroy1click.auth.service.JwtService;
+import ru.stroy1click.auth.service.RevocationEpochService;
+import ru.stroy1click.auth.startup.TrainingRun;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Эпохи хранятся в {@code auth.revocation_epochs} и в памяти как epoch-секунды по email и по роли.
+ * Распространение между нодами такое же, как у {@link AccessTokenRevocationServiceImpl}: событие в
+ * {@link InvalidationBus} и опрос по {@code updated_at} как страховка.
+ * <p>
+ * {@code iat} в JWT хранится с точностью до секунды, поэтому граница отзыва округляется вверх до
+ * следующей секунды: токен, выданный в ту же секунду, что и отзыв, тоже считается отозванным.
+ * <p>
+ * Эпохи загружаются при старте контекста, до готовности сервиса; проверка идет только по памяти.
+ */
+@Slf4j
+@Service
+public class RevocationEpochServiceImpl implements RevocationEpochService, InvalidationListener,
+        SmartInitializingSingleton {
+
+    private static final String USER = "U";
+
+    private static final String ROLE = "R";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final InvalidationBus invalidationBus;
+
+    private final Duration pollOverlap;
+
+    private final boolean trainingRun;
+
+    private final Map<String, Long> userEpochs = new ConcurrentHashMap<>();
+
+    private final Map<String, Long> roleEpochs = new ConcurrentHashMap<>();
+
+    private volatile LocalDateTime pollFrom;
+
+    public RevocationEpochServiceImpl(JdbcTemplate jdbcTemplate,
+                                      InvalidationBus invalidationBus,
+                                      @Value("${jwt.revocation.poll-overlap}") Duration pollOverlap,
+                                      @Value(TrainingRun.CONTEXT_EXIT_PROPERTY) String contextExit){
+        this.jdbcTemplate = jdbcTemplate;
+        this.invalidationBus = invalidationBus;
+        this.pollOverlap = pollOverlap;
+        this.trainingRun = TrainingRun.isActive(contextExit);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!this.trainingRun) load();
+    }
+
+    @Override
+    public boolean isRevoked(String email, String role, Instant issuedAt) {
+        long issuedAtSecond = issuedAt.getEpochSecond();
+        Long userEpoch = this.userEpochs.get(email);
+        if (userEpoch != null && issuedAtSecond < userEpoch) return true;
+        Long roleEpoch = role != null ? this.roleEpochs.get(role) : null;
+        return roleEpoch != null && issuedAtSecond < roleEpoch;
+    }
+
+    @Override
+    public void revokeUsers(Collection<String> emails) {
+        Set<String> subjects = new LinkedHashSet<>(emails);
+        Instant notBefore = nextSecond();
+        upsert(USER, subjects, notBefore);
+        subjects.forEach(email -> this.userEpochs.merge(email, notBefore.getEpochSecond(), Math::max));
+        subjects.forEach(email -> this.invalidationBus.publish(
+                new InvalidationEvent(InvalidationEvent.Type.USER_EPOCH, email, notBefore)));
+        log.info("revokeUsers {} users, not before {}", subjects.size(), notBefore);
+    }
+
+    @Override
+    public void revokeRole(String role) {
+        Instant notBefore = nextSecond();
+        upsert(ROLE, Set.of(role), notBefore);
+        this.roleEpochs.merge(role, notBefore.getEpochSecond(), Math::max);
+        this.invalidationBus.publish(new InvalidationEvent(InvalidationEvent.Type.ROLE_EPOCH, role, notBefore));
+        log.info("revokeRole {}, not before {}", role, notBefore);
+    }
+
+    @Override
+    public int pollEpochs() {
+        if (this.pollFrom == null) return load();
+
+        LocalDateTime from = this.pollFrom;
+        LocalDateTime[] latest = {from.plus(this.pollOverlap)};
+        int[] count = {0};
+        this.jdbcTemplate.query("""
+                select subject_type, subject, not_before, updated_at from auth.revocation_epochs
+                where updated_at >= ?
+                """, rs -> {
+            apply(rs);
+            LocalDateTime updatedAt = rs.getTimestamp("updated_at").toLocalDateTime();
+            if (updatedAt.isAfter(latest[0])) latest[0] = updatedAt;
+            count[0]++;
+        }, Timestamp.valueOf(from));
+        this.pollFrom = latest[0].minus(this.pollOverlap);
+        return count[0];
+    }
+
+    /**
+     * Эпоха больше не нужна, когда истекли все токены, выданные до нее.
+     */
+    @Override
+    public int purgeExpired() {
+        long threshold = Instant.now().minus(JwtService.ACCESS_TOKEN_LIFETIME).getEpochSecond();
+        int before = this.userEpochs.size() + this.roleEpochs.size();
+        this.userEpochs.values().removeIf(epoch -> epoch < threshold);
+        this.roleEpochs.values().removeIf(epoch -> epoch < threshold);
+        return before - this.userEpochs.size() - this.roleEpochs.size();
+    }
+
+    @Override
+    public void onInvalidation(List<InvalidationEvent> events) {
+        for (InvalidationEvent event : events) {
+            if (event.type() == InvalidationEvent.Type.USER_EPOCH) {
+                this.userEpochs.merge(event.key(), event.expiry().getEpochSecond(), Math::max);
+            } else if (event.type() == InvalidationEvent.Type.ROLE_EPOCH) {
+                this.roleEpochs.merge(event.key(), event.expiry().getEpochSecond(), Math::max);
+            }
+        }
+    }
+
+    /**
+     * Эпохи сливаются через максимум, поэтому перечитывание не сбрасывает уже известные.
+     */
+    @Override
+    public void onResync() {
+        load();
+    }
+
+    private void upsert(String subjectType, Set<String> subjects, Instant notBefore) {
+        this.jdbcTemplate.update("""
+                insert into auth.revocation_epochs (subject_type, subject, not_before)
+                select ?, subject, ? from unnest(?::varchar[]) as subject
+                on conflict (subject_type, subject) do update
+                set not_before = greatest(auth.revocation_epochs.not_before, excluded.not_before),
+                    updated_at = clock_timestamp()
+                """, ps -> {
+            ps.setString(1, subjectType);
+            ps.setTimestamp(2, Timestamp.from(notBefore));
+            ps.setArray(3, ps.getConnection().createArrayOf("varchar", subjects.toArray()));
+        });
+    }
+
+    private void apply(ResultSet rs) throws SQLException {
+        Map<String, Long> epochs = USER.equals(rs.getString("subject_type")) ? this.userEpochs : this.roleEpochs;
+        epochs.merge(rs.getString("subject"), rs.getTimestamp("not_before").toInstant().getEpochSecond(), Math::max);
+    }
+
+    private Instant nextSecond() {
+        return Instant.now().truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+    }
+
+    private synchronized int load() {
+        LocalDateTime from = this.jdbcTemplate.queryForObject("select localtimestamp", LocalDateTime.class)
+                .minus(this.pollOverlap);
+        this.jdbcTemplate.query("""
+                select subject_type, subject, not_before from auth.revocation_epochs
+                where not_before > localtimestamp - make_interval(secs => ?)
+                """, this::apply, JwtService.ACCESS_TOKEN_LIFETIME.toSeconds());
+        this.pollFrom = from;
+        log.info("load loaded {} user and {} role revocation epochs", this.userEpochs.size(), this.roleEpochs.size());
+        return this.userEpochs.size() + this.roleEpochs.size();
+    }
+}
@@ -0,0 +1,99 @@
+package ru.stroy1click.auth.service.impl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.stroy1click.auth.model.SessionCursor;
+import ru.stroy1click.auth.model.SessionView;
+import ru.stroy1click.auth.service.SessionQueryService;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Каждая страница читается отдельным коротким read-only запросом (при включенной маршрутизации -
+ * с реплики) и отдается потребителю уже после возврата соединения в пул, так что медленный клиент
+ * не держит соединение. Сущности и контекст персистентности не используются.
+ */
+@Service
+public class SessionQueryServiceImpl implements SessionQueryService {
+
+    private static final String BY_USER_EMAIL = """
+            select id, user_email, expiry_date from auth.refresh_tokens
+            where user_email = ? and (expiry_date, id) > (?, ?)
+            order by expiry_date, id
+            limit ?
+            """;
+
+    private static final String BY_EXPIRY_RANGE = """
+            select id, user_email, expiry_date from auth.refresh_tokens
+            where expiry_date >= ? and expiry_date < ? and (expiry_date, id) > (?, ?)
+            order by expiry_date, id
+            limit ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    private final int pageSize;
+
+    public SessionQueryServiceImpl(JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${admin.sessions.page-size}") int pageSize){
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public long streamByUserEmail(String email, SessionCursor after, long limit, Consumer<List<SessionView>> consumer) {
+        SessionCursor start = after != null ? after : SessionCursor.from(Instant.now());
+        return stream(start, limit, consumer, (cursor, size) -> readPage(BY_USER_EMAIL,
+                email, Timestamp.from(cursor.expiryDate()), cursor.id(), size));
+    }
+
+    @Override
+    public long streamByExpiryRange(Instant from, Instant to, SessionCursor after, long limit,
+                                    Consumer<List<SessionView>> consumer) {
+        SessionCursor start = after != null ? after : SessionCursor.from(from);
+        return stream(start, limit, consumer, (cursor, size) -> readPage(BY_EXPIRY_RANGE,
+                Timestamp.from(from), Timestamp.from(to), Timestamp.from(cursor.expiryDate()), cursor.id(), size));
+    }
+
+    private long stream(SessionCursor start, long limit, Consumer<List<SessionView>> consumer, PageReader reader) {
+        long total = 0;
+        SessionCursor cursor = start;
+        while (total < limit) {
+            int size = (int) Math.min(this.pageSize, limit - total);
+            List<SessionView> page = reader.read(cursor, size);
+            if (!page.isEmpty()) consumer.accept(page);
+            total += page.size();
+            if (page.size() < size) break;
+
+            SessionView last = page.getLast();
+            cursor = new SessionCursor(last.expiryDate(), last.id());
+        }
+        return total;
+    }
+
+    private List<SessionView> readPage(String sql, Object... args) {
+        return this.readOnlyTransactionTemplate.execute(status -> this.jdbcTemplate.query(sql,
+                (rs, rowNum) -> new SessionView(
+                        rs.getInt("id"),
+                        rs.getString("user_email"),
+                        rs.getTimestamp("expiry_date").toInstant()
+                ), args));
+    }
+
+    @FunctionalInterface
+    private interface PageReader {
+
+        List<SessionView> read(SessionCursor cursor, int size);
+    }
+}
@@ -0,0 +1,137 @@
+package ru.stroy1click.auth.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import ru.stroy1click.auth.invalidation.InvalidationBus;
+import ru.stroy1click.auth.invalidation.InvalidationEvent;
+import ru.stroy1click.auth.invalidation.InvalidationListener;
+import ru.stroy1click.auth.model.RefreshTokenMode;
+import ru.stroy1click.auth.service.SessionRevocationService;
+import ru.stroy1click.auth.startup.TrainingRun;
+import ru.stroy1click.auth.util.RevocationSet;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Держит в памяти отозванные сессии из {@code auth.revoked_sessions} в {@link RevocationSet}.
+ * Журнал догружается опросом по {@code revoked_at} с перекрытием {@code poll-overlap}, чтобы
+ * не пропустить транзакции, закоммиченные позже своего времени записи, и периодически
+ * перечитывается целиком. Отзывы, разосланные другими нодами через {@link InvalidationBus},
+ * попадают в набор сразу, опрос остается страховкой на случай потерянных уведомлений.
+ * <p>
+ * В режиме {@code SIGNED} журнал загружается при старте контекста, до готовности сервиса;
+ * проверка идет только по памяти.
+ */
+@Slf4j
+@Service
+public class SessionRevocationServiceImpl implements SessionRevocationService, InvalidationListener,
+        SmartInitializingSingleton {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final int expectedRevocations;
+
+    private final double falsePositiveProbability;
+
+    private final Duration pollOverlap;
+
+    private final boolean enabled;
+
+    private final boolean trainingRun;
+
+    private volatile RevocationSet revocations;
+
+    private volatile LocalDateTime pollFrom;
+
+    public SessionRevocationServiceImpl(JdbcTemplate jdbcTemplate,
+                                        @Value("${refresh-token.signed.revocation.expected-revocations}") int expectedRevocations,
+                                        @Value("${refresh-token.signed.revocation.false-positive-probability}") double falsePositiveProbability,
+                                        @Value("${refresh-token.signed.revocation.poll-overlap}") Duration pollOverlap,
+                                        @Value("${refresh-token.mode}") RefreshTokenMode mode,
+                                        @Value(TrainingRun.CONTEXT_EXIT_PROPERTY) String contextExit){
+        this.jdbcTemplate = jdbcTemplate;
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.pollOverlap = pollOverlap;
+        this.enabled = mode == RefreshTokenMode.SIGNED;
+        this.trainingRun = TrainingRun.isActive(contextExit);
+        this.revocations = new RevocationSet(expectedRevocations, falsePositiveProbability);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (this.enabled && !this.trainingRun) rebuild();
+    }
+
+    @Override
+    public boolean isRevoked(String tokenHash) {
+        return this.revocations.contains(tokenHash);
+    }
+
+    @Override
+    public void revoke(String tokenHash, Instant expiry) {
+        this.revocations.add(tokenHash, expiry);
+    }
+
+    @Override
+    public int pollRevocations() {
+        if (this.pollFrom == null) return rebuild();
+
+        RevocationSet current = this.revocations;
+        LocalDateTime from = this.pollFrom;
+
+        List<Map<String, Object>> rows = this.jdbcTemplate.queryForList("""
+                select token_hash, expiry_date, revoked_at from auth.revoked_sessions
+                where revoked_at >= ? and expiry_date > localtimestamp
+                """, Timestamp.valueOf(from));
+
+        LocalDateTime latest = from.plus(this.pollOverlap);
+        for (Map<String, Object> row : rows) {
+            current.add((String) row.get("token_hash"), ((Timestamp) row.get("expiry_date")).toInstant());
+            LocalDateTime revokedAt = ((Timestamp) row.get("revoked_at")).toLocalDateTime();
+            if (revokedAt.isAfter(latest)) latest = revokedAt;
+        }
+        this.pollFrom = latest.minus(this.pollOverlap);
+        return rows.size();
+    }
+
+    @Override
+    public synchronized int rebuild() {
+        LocalDateTime from = this.jdbcTemplate.queryForObject("select localtimestamp", LocalDateTime.class)
+                .minus(this.pollOverlap);
+        RevocationSet rebuilt = new RevocationSet(this.expectedRevocations, this.falsePositiveProbability);
+        this.jdbcTemplate.query("""
+                select token_hash, expiry_date from auth.revoked_sessions
+                where expiry_date > localtimestamp
+                """, rs -> {
+            rebuilt.add(rs.getString("token_hash"), rs.getTimestamp("expiry_date").toInstant());
+        });
+        rebuilt.purgeExpired();
+
+        this.revocations = rebuilt;
+        this.pollFrom = from;
+        log.info("rebuild loaded {} revoked sessions", rebuilt.size());
+        return rebuilt.size();
+    }
+
+    @Override
+    public void onInvalidation(List<InvalidationEvent> events) {
+        RevocationSet current = this.revocations;
+        events.stream()
+                .filter(event -> event.type() == InvalidationEvent.Type.SESSION_REVOKED)
+                .forEach(event -> current.add(event.key(), event.expiry()));
+    }
+
+    @Override
+    public void onResync() {
+        if (this.enabled) rebuild();
+    }
+}
@@ -0,0 +1,79 @@
+package ru.stroy1click.auth.startup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.core.Ordered;
+import org.springframework.core.type.MethodMetadata;
+
+import java.util.List;
+
+/**
+ * Помечает ленивыми бины, которые не нужны для обработки запросов к API: их классы или
+ * конфигурации, в которых они объявлены, лежат в одном из {@code packages}. Такие бины создаются
+ * при первом обращении (например, первый запрос к {@code /v3/api-docs}), а не до готовности сервиса.
+ * <p>
+ * Явно указанный {@code @Lazy(false)}, инфраструктурные бины и {@link SmartInitializingSingleton}
+ * не трогаются.
+ */
+@Slf4j
+public class LazyInitializationPostProcessor implements BeanFactoryPostProcessor, Ordered {
+
+    private final List<String> packages;
+
+    public LazyInitializationPostProcessor(List<String> packages) {
+        this.packages = packages.stream()
+                .map(pkg -> pkg.endsWith(".") ? pkg : pkg + ".")
+                .toList();
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+        int count = 0;
+        for (String beanName : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition definition = beanFactory.getBeanDefinition(beanName);
+            if (isNonCritical(beanFactory, beanName, definition)) {
+                definition.setLazyInit(true);
+                count++;
+            }
+        }
+        log.info("postProcessBeanFactory {} beans marked lazy", count);
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+
+    private boolean isNonCritical(ConfigurableListableBeanFactory beanFactory, String beanName,
+                                  BeanDefinition definition) {
+        if (definition.getRole() == BeanDefinition.ROLE_INFRASTRUCTURE) return false;
+        if (definition instanceof AbstractBeanDefinition abstractDefinition
+                && abstractDefinition.getLazyInit() != null) return false;
+        if (!matches(sourceClassName(definition))) return false;
+
+        Class<?> type = beanFactory.getType(beanName, false);
+        return type == null || !SmartInitializingSingleton.class.isAssignableFrom(type);
+    }
+
+    private String sourceClassName(BeanDefinition definition) {
+        if (definition instanceof AnnotatedBeanDefinition annotated) {
+            MethodMetadata factoryMethod = annotated.getFactoryMethodMetadata();
+            if (factoryMethod != null) return factoryMethod.getDeclaringClassName();
+        }
+        return definition.getBeanClassName();
+    }
+
+    private boolean matches(String className) {
+        if (className == null) return false;
+        for (String pkg : this.packages) {
+            if (className.startsWith(pkg)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,18 @@
+package ru.stroy1click.auth.startup;
+
+/**
+ * Обучающий запуск для AppCDS ({@code -Dspring.context.exit=onRefresh}) при сборке образа идет без
+ * базы: JVM завершается сразу после обновления контекста, поэтому все, что при старте читает
+ * базу, в нем пропускается.
+ */
+public final class TrainingRun {
+
+    public static final String CONTEXT_EXIT_PROPERTY = "${spring.context.exit:}";
+
+    private TrainingRun() {
+    }
+
+    public static boolean isActive(String contextExit) {
+        return "onRefresh".equals(contextExit);
+    }
+}
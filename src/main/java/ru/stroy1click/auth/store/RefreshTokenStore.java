@@ -0,0 +1,33 @@
+package ru.stroy1click.auth.store;
+
+import ru.stroy1click.auth.entity.RefreshToken;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Хранилище refresh токенов. Реализация выбирается свойством {@code refresh-token.store.type}:
+ * {@code jpa} - напрямую PostgreSQL, {@code tiered} - чтение из памяти с записью в PostgreSQL.
+ */
+public interface RefreshTokenStore {
+
+    RefreshToken save(RefreshToken refreshToken);
+
+    List<RefreshToken> saveAll(List<RefreshToken> refreshTokens);
+
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    boolean extend(String tokenHash, Duration step, Duration maxLifetime);
+
+    boolean deleteByTokenHash(String tokenHash);
+
+    int deleteAllByUserEmail(String userEmail);
+
+    /**
+     * Блокирует сессии пользователя до конца текущей транзакции и возвращает количество активных.
+     */
+    long lockAndCountActiveSessions(String userEmail);
+
+    int evictOldestSessions(String userEmail, long count);
+}
@@ -0,0 +1,209 @@
+package ru.stroy1click.auth.store;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import ru.stroy1click.auth.entity.RefreshToken;
+import ru.stroy1click.auth.exception.ServiceUnavailableException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Группирует вставки новых сессий в пачки. Вызывающий поток ждет, пока пачка с его токеном не
+ * будет закоммичена, поэтому токен отдается клиенту только после фиксации в базе. Пачка
+ * отправляется при наборе {@code max-batch-size} токенов или через {@code max-delay} после
+ * первого токена. Если очередь переполнена или буфер остановлен, запись идет напрямую.
+ * <p>
+ * При остановке все токены, оставшиеся в очереди, записываются без буфера, поэтому ни один
+ * вызывающий поток не остается без результата. Ожидание дополнительно ограничено
+ * {@code wait-timeout}: если за это время пачка так и не была взята в работу, токен записывается
+ * напрямую. Если пачка уже пишется, вызывающий поток ждет ее еще один {@code wait-timeout}, а не
+ * получив результат, отвечает {@link ServiceUnavailableException}. Токен, закоммиченный после
+ * такого отказа, удаляется, чтобы сессия, которую клиент не получил, не занимала место в лимите
+ * активных сессий.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "refresh-token.write-buffer", name = "enabled", havingValue = "true")
+public class RefreshTokenWriteBuffer implements SmartLifecycle {
+
+    private final RefreshTokenWriter refreshTokenWriter;
+
+    private final RefreshTokenStore refreshTokenStore;
+
+    private final BlockingQueue<PendingWrite> queue;
+
+    private final int maxBatchSize;
+
+    private final Duration maxDelay;
+
+    private final Duration waitTimeout;
+
+    private volatile boolean running;
+
+    private Thread flusher;
+
+    public RefreshTokenWriteBuffer(RefreshTokenWriter refreshTokenWriter,
+                                   RefreshTokenStore refreshTokenStore,
+                                   @Value("${refresh-token.write-buffer.max-batch-size}") int maxBatchSize,
+                                   @Value("${refresh-token.write-buffer.max-delay}") Duration maxDelay,
+                                   @Value("${refresh-token.write-buffer.capacity}") int capacity,
+                                   @Value("${refresh-token.write-buffer.wait-timeout}") Duration waitTimeout){
+        this.refreshTokenWriter = refreshTokenWriter;
+        this.refreshTokenStore = refreshTokenStore;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelay = maxDelay;
+        this.waitTimeout = waitTimeout;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    public RefreshToken write(RefreshToken refreshToken) {
+        PendingWrite pendingWrite = new PendingWrite(refreshToken, new CompletableFuture<>());
+        if (!this.running || !this.queue.offer(pendingWrite)) {
+            return writeDirectly(refreshToken);
+        }
+        // буфер мог остановиться и уже разобрать очередь между проверкой и offer
+        if (!this.running && this.queue.remove(pendingWrite)) {
+            return writeDirectly(refreshToken);
+        }
+
+        try {
+            return await(pendingWrite);
+        } catch (TimeoutException e) {
+            if (this.queue.remove(pendingWrite)) return writeDirectly(refreshToken);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw abandon(pendingWrite);
+        }
+
+        // пачка уже в работе и, скорее всего, будет закоммичена: ответ 503 оставил бы сессию без клиента
+        try {
+            return await(pendingWrite);
+        } catch (TimeoutException e) {
+            throw abandon(pendingWrite);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw abandon(pendingWrite);
+        }
+    }
+
+    @Override
+    public void start() {
+        this.running = true;
+        this.flusher = Thread.ofPlatform()
+                .name("refresh-token-write-buffer")
+                .daemon(true)
+                .start(this::flushLoop);
+    }
+
+    @Override
+    public void stop() {
+        this.running = false;
+        try {
+            this.flusher.join(this.maxDelay.toMillis() + 5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushRemaining(new ArrayList<>());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    private void flushLoop() {
+        List<PendingWrite> batch = new ArrayList<>(this.maxBatchSize);
+        try {
+            while (this.running || !this.queue.isEmpty()) {
+                PendingWrite first = this.queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+
+                batch.add(first);
+                long deadline = System.nanoTime() + this.maxDelay.toNanos();
+                while (batch.size() < this.maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) break;
+                    PendingWrite next = this.queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                flush(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.running = false;
+        } finally {
+            flushRemaining(batch);
+        }
+    }
+
+    /**
+     * Записывает уже набранную пачку и все, что осталось в очереди. Вызывается при выходе из
+     * цикла и из {@link #stop()}: {@code drainTo} отдает каждый элемент очереди только одному из них.
+     */
+    private void flushRemaining(List<PendingWrite> pending) {
+        this.queue.drainTo(pending);
+        for (int from = 0; from < pending.size(); from += this.maxBatchSize) {
+            flush(pending.subList(from, Math.min(from + this.maxBatchSize, pending.size())));
+        }
+        pending.clear();
+    }
+
+    private RefreshToken await(PendingWrite pendingWrite) throws TimeoutException, InterruptedException {
+        try {
+            return pendingWrite.result().get(this.waitTimeout.toMillis(), TimeUnit.MILLISECONDS).getOrThrow();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Отказывается от ожидания. Токен, который еще в очереди, просто убирается из нее; если пачка
+     * уже в работе, записанная ею сессия удаляется после коммита.
+     */
+    private ServiceUnavailableException abandon(PendingWrite pendingWrite) {
+        if (!this.queue.remove(pendingWrite)) {
+            pendingWrite.result().thenAccept(result -> {
+                if (result.error() == null) deleteAbandoned(result.refreshToken());
+            });
+        }
+        return new ServiceUnavailableException();
+    }
+
+    private void deleteAbandoned(RefreshToken refreshToken) {
+        try {
+            this.refreshTokenStore.deleteByTokenHash(refreshToken.getTokenHash());
+        } catch (RuntimeException e) {
+            log.error("failed to delete abandoned refresh token session", e);
+        }
+    }
+
+    private RefreshToken writeDirectly(RefreshToken refreshToken) {
+        return this.refreshTokenWriter.write(List.of(refreshToken)).get(0).getOrThrow();
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        try {
+            List<RefreshTokenWriter.WriteResult> results = this.refreshTokenWriter.write(
+                    batch.stream().map(PendingWrite::refreshToken).toList()
+            );
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result().complete(results.get(i));
+            }
+        } catch (RuntimeException e) {
+            log.error("flush of {} refresh tokens failed", batch.size(), e);
+            batch.forEach(pendingWrite -> pendingWrite.result().completeExceptionally(e));
+        }
+    }
+
+    private record PendingWrite(RefreshToken refreshToken, CompletableFuture<RefreshTokenWriter.WriteResult> result) {
+    }
+}
@@ -0,0 +1,113 @@
+package ru.stroy1click.auth.store;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.MessageSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.stroy1click.auth.entity.RefreshToken;
+import ru.stroy1click.auth.exception.ValidationException;
+import ru.stroy1click.auth.model.SessionLimitPolicy;
+
+import java.util.*;
+
+/**
+ * Сохраняет новые сессии с учетом лимита активных сессий пользователя. Пачка обрабатывается одной
+ * транзакцией: для каждого пользователя берется advisory блокировка (в порядке email, чтобы
+ * параллельные пачки не взаимоблокировались), после чего все допущенные токены вставляются одним
+ * JDBC batch.
+ */
+@Component
+@RequiredArgsConstructor
+public class RefreshTokenWriter {
+
+    private final RefreshTokenStore refreshTokenStore;
+
+    private final MessageSource messageSource;
+
+    @Value("${refresh-token.session.max-active}")
+    private int maxActiveSessions;
+
+    @Value("${refresh-token.session.limit-policy}")
+    private SessionLimitPolicy sessionLimitPolicy;
+
+    /**
+     * @return результаты в том же порядке, что и входные токены
+     */
+    @Transactional
+    public List<WriteResult> write(List<RefreshToken> refreshTokens) {
+        Map<String, List<Integer>> indexesByEmail = new TreeMap<>();
+        for (int i = 0; i < refreshTokens.size(); i++) {
+            indexesByEmail.computeIfAbsent(refreshTokens.get(i).getUserEmail(), email -> new ArrayList<>()).add(i);
+        }
+
+        WriteResult[] results = new WriteResult[refreshTokens.size()];
+        List<RefreshToken> accepted = new ArrayList<>(refreshTokens.size());
+
+        for (Map.Entry<String, List<Integer>> entry : indexesByEmail.entrySet()) {
+            String email = entry.getKey();
+            List<Integer> indexes = entry.getValue();
+            long activeSessions = this.refreshTokenStore.lockAndCountActiveSessions(email);
+
+            if (this.sessionLimitPolicy == SessionLimitPolicy.EVICT_OLDEST) {
+                int kept = Math.min(indexes.size(), this.maxActiveSessions);
+                long overflow = activeSessions + kept - this.maxActiveSessions;
+                if (overflow > 0) {
+                    this.refreshTokenStore.evictOldestSessions(email, overflow);
+                }
+                // если в одной пачке сессий больше лимита, самые ранние не сохраняются и получают ошибку
+                for (int i = 0; i < indexes.size(); i++) {
+                    RefreshToken refreshToken = refreshTokens.get(indexes.get(i));
+                    if (i >= indexes.size() - kept) {
+                        accepted.add(refreshToken);
+                        results[indexes.get(i)] = WriteResult.success(refreshToken);
+                    } else {
+                        results[indexes.get(i)] = WriteResult.failure(maxSessionsReached());
+                    }
+                }
+            } else {
+                long allowed = Math.max(0, this.maxActiveSessions - activeSessions);
+                for (int i = 0; i < indexes.size(); i++) {
+                    RefreshToken refreshToken = refreshTokens.get(indexes.get(i));
+                    if (i < allowed) {
+                        accepted.add(refreshToken);
+                        results[indexes.get(i)] = WriteResult.success(refreshToken);
+                    } else {
+                        results[indexes.get(i)] = WriteResult.failure(maxSessionsReached());
+                    }
+                }
+            }
+        }
+
+        if (!accepted.isEmpty()) {
+            this.refreshTokenStore.saveAll(accepted);
+        }
+        return Arrays.asList(results);
+    }
+
+    private ValidationException maxSessionsReached() {
+        return new ValidationException(
+                this.messageSource.getMessage(
+                        "error.refresh_token.max_session",
+                        null,
+                        Locale.getDefault()
+                )
+        );
+    }
+
+    public record WriteResult(RefreshToken refreshToken, RuntimeException error) {
+
+        static WriteResult success(RefreshToken refreshToken) {
+            return new WriteResult(refreshToken, null);
+        }
+
+        static WriteResult failure(RuntimeException error) {
+            return new WriteResult(null, error);
+        }
+
+        public RefreshToken getOrThrow() {
+            if (this.error != null) throw this.error;
+            return this.refreshToken;
+        }
+    }
+}
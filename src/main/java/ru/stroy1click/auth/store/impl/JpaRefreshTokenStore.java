@@ -0,0 +1,287 @@
+package ru.stroy1click.auth.store.impl;
+
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.cache.spi.access.NaturalIdDataAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.stroy1click.auth.datasource.ReplicationLagGuard;
+import ru.stroy1click.auth.entity.RefreshToken;
+import ru.stroy1click.auth.invalidation.InvalidationBus;
+import ru.stroy1click.auth.invalidation.InvalidationEvent;
+import ru.stroy1click.auth.invalidation.InvalidationListener;
+import ru.stroy1click.auth.model.RefreshTokenMode;
+import ru.stroy1click.auth.repository.RefreshTokenKey;
+import ru.stroy1click.auth.repository.RefreshTokenRepository;
+import ru.stroy1click.auth.service.SessionRevocationService;
+import ru.stroy1click.auth.store.RefreshTokenStore;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+@Component
+@Transactional
+public class JpaRefreshTokenStore implements RefreshTokenStore, InvalidationListener {
+
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    private final EntityManager entityManager;
+
+    private final ReplicationLagGuard replicationLagGuard;
+
+    private final InvalidationBus invalidationBus;
+
+    private final SessionRevocationService sessionRevocationService;
+
+    /**
+     * Журнал отозванных сессий читают только ноды в режиме подписанных refresh токенов.
+     */
+    private final boolean recordRevocations;
+
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    private final TransactionTemplate primaryTransactionTemplate;
+
+    public JpaRefreshTokenStore(RefreshTokenRepository refreshTokenRepository,
+                                EntityManager entityManager,
+                                ReplicationLagGuard replicationLagGuard,
+                                InvalidationBus invalidationBus,
+                                SessionRevocationService sessionRevocationService,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${refresh-token.mode}") RefreshTokenMode mode){
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.entityManager = entityManager;
+        this.replicationLagGuard = replicationLagGuard;
+        this.invalidationBus = invalidationBus;
+        this.sessionRevocationService = sessionRevocationService;
+        this.recordRevocations = mode == RefreshTokenMode.SIGNED;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        // read-write транзакция всегда идет на primary
+        this.primaryTransactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public RefreshToken save(RefreshToken refreshToken) {
+        this.replicationLagGuard.recordWrite(refreshToken.getTokenHash());
+        return this.refreshTokenRepository.save(refreshToken);
+    }
+
+    @Override
+    public List<RefreshToken> saveAll(List<RefreshToken> refreshTokens) {
+        refreshTokens.forEach(refreshToken -> this.replicationLagGuard.recordWrite(refreshToken.getTokenHash()));
+        return this.refreshTokenRepository.saveAll(refreshTokens);
+    }
+
+    /**
+     * Читает с реплики, кроме случаев, когда эта или другая нода недавно меняла сам токен или сессии
+     * его пользователя: тогда чтение повторяется на primary, чтобы отставание реплики не вернуло
+     * удаленную или не продленную сессию. Изменения других нод {@link ReplicationLagGuard} узнает из
+     * событий {@link InvalidationBus}.
+     * <p>
+     * Чтение с реплики не кладет записи во второй уровень кэша ({@link CacheMode#GET}): иначе
+     * устаревшая строка с отстающей реплики жила бы в кэше до конца TTL региона. Чтение на primary
+     * идет мимо кэша и обновляет его ({@link CacheMode#REFRESH}). Каждое чтение выполняется в
+     * собственной транзакции: маршрут выбирается при получении соединения, поэтому повторное
+     * чтение на primary внутри транзакции, уже получившей соединение с реплики, невозможно.
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Optional<RefreshToken> findByTokenHash(String tokenHash) {
+        if (!this.replicationLagGuard.isEnabled()) {
+            return this.readOnlyTransactionTemplate.execute(status -> loadByTokenHash(tokenHash, CacheMode.NORMAL));
+        }
+        if (this.replicationLagGuard.isRecentlyWritten(tokenHash)) {
+            return loadFromPrimary(tokenHash);
+        }
+
+        Optional<RefreshToken> refreshToken = this.readOnlyTransactionTemplate.execute(
+                status -> loadByTokenHash(tokenHash, CacheMode.GET)
+        );
+        if (refreshToken.isPresent()
+                && (this.replicationLagGuard.isRecentlyWritten(refreshToken.get().getUserEmail())
+                || this.replicationLagGuard.isRecentlyWritten(refreshToken.get().getId().toString()))) {
+            return loadFromPrimary(tokenHash);
+        }
+        return refreshToken;
+    }
+
+    private Optional<RefreshToken> loadFromPrimary(String tokenHash) {
+        return this.primaryTransactionTemplate.execute(status -> loadByTokenHash(tokenHash, CacheMode.REFRESH));
+    }
+
+    private Optional<RefreshToken> loadByTokenHash(String tokenHash, CacheMode cacheMode) {
+        Session session = this.entityManager.unwrap(Session.class);
+        session.setCacheMode(cacheMode);
+        return session.bySimpleNaturalId(RefreshToken.class)
+                .loadOptional(tokenHash);
+    }
+
+    @Override
+    public boolean extend(String tokenHash, Duration step, Duration maxLifetime) {
+        this.replicationLagGuard.recordWrite(tokenHash);
+        Optional<Integer> id = this.refreshTokenRepository.extendExpiryDateByTokenHash(
+                tokenHash, step.toSeconds(), maxLifetime.toSeconds()
+        );
+        // natural id -> id при продлении не меняется, вытесняется только запись сущности
+        id.ifPresent(extended -> evict(List.of(extended), List.of()));
+        return id.isPresent();
+    }
+
+    @Override
+    public boolean deleteByTokenHash(String tokenHash) {
+        this.replicationLagGuard.recordWrite(tokenHash);
+        return evict(this.refreshTokenRepository.deleteByTokenHash(tokenHash, this.recordRevocations)) > 0;
+    }
+
+    @Override
+    public int deleteAllByUserEmail(String userEmail) {
+        this.replicationLagGuard.recordWrite(userEmail);
+        return evict(this.refreshTokenRepository.deleteAllByUserEmail(userEmail, this.recordRevocations));
+    }
+
+    @Override
+    public long lockAndCountActiveSessions(String userEmail) {
+        this.refreshTokenRepository.lockSessionsByUserEmail(userEmail);
+        return this.refreshTokenRepository.countActiveByUserEmail(userEmail);
+    }
+
+    @Override
+    public int evictOldestSessions(String userEmail, long count) {
+        this.replicationLagGuard.recordWrite(userEmail);
+        return evict(this.refreshTokenRepository.deleteOldestActiveByUserEmail(userEmail, count, this.recordRevocations));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void onInvalidation(List<InvalidationEvent> events) {
+        Cache cache = this.entityManager.getEntityManagerFactory().getCache();
+        List<String> tokenHashes = new ArrayList<>();
+        for (InvalidationEvent event : events) {
+            switch (event.type()) {
+                case ENTITY -> cache.evict(RefreshToken.class, Integer.valueOf(event.key()));
+                case NATURAL_ID -> tokenHashes.add(event.key());
+                default -> { }
+            }
+        }
+        evictNaturalIds(tokenHashes);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void onResync() {
+        org.hibernate.Cache cache = this.entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getCache();
+        cache.evictEntityData(RefreshToken.class);
+        cache.evictNaturalIdData(RefreshToken.class);
+    }
+
+    private int evict(List<RefreshTokenKey> keys) {
+        evict(keys.stream().map(RefreshTokenKey::getId).toList(),
+                keys.stream().map(RefreshTokenKey::getTokenHash).toList());
+        if (this.recordRevocations) publishRevocations(keys);
+        return keys.size();
+    }
+
+    /**
+     * Удаленные действующие сессии подписанных токенов уже записаны в журнал тем же запросом, здесь
+     * они рассылаются нодам через {@link InvalidationBus} и после коммита попадают в набор отзывов
+     * этой ноды. Опрос журнала остается страховкой на случай потерянных уведомлений.
+     */
+    private void publishRevocations(List<RefreshTokenKey> keys) {
+        Instant now = Instant.now();
+        List<InvalidationEvent> revocations = keys.stream()
+                .map(key -> new InvalidationEvent(InvalidationEvent.Type.SESSION_REVOKED,
+                        key.getTokenHash(), Instant.ofEpochSecond(key.getExpiryEpochSecond())))
+                .filter(event -> event.expiry().isAfter(now))
+                .toList();
+        if (revocations.isEmpty()) return;
+
+        revocations.forEach(this.invalidationBus::publish);
+        Runnable revoke = () -> revocations.forEach(
+                event -> this.sessionRevocationService.revoke(event.key(), event.expiry())
+        );
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    revoke.run();
+                }
+            });
+        } else {
+            revoke.run();
+        }
+    }
+
+    /**
+     * Native запросы идут мимо второго уровня кэша, поэтому измененные записи вытесняются вручную
+     * на этой ноде и через {@link InvalidationBus} на остальных: и запись сущности по id, и запись
+     * natural id по token_hash удаленного токена.
+     */
+    private void evict(List<Integer> ids, List<String> tokenHashes) {
+        evictLocally(ids, tokenHashes);
+        ids.forEach(id -> this.invalidationBus.publish(
+                InvalidationEvent.of(InvalidationEvent.Type.ENTITY, id.toString())
+        ));
+        tokenHashes.forEach(tokenHash -> this.invalidationBus.publish(
+                InvalidationEvent.of(InvalidationEvent.Type.NATURAL_ID, tokenHash)
+        ));
+    }
+
+    /**
+     * Вытесняет записи сразу и повторно после коммита, чтобы параллельное чтение не вернуло в кэш
+     * старую версию.
+     */
+    private void evictLocally(List<Integer> ids, List<String> tokenHashes) {
+        if (ids.isEmpty() && tokenHashes.isEmpty()) return;
+
+        Cache cache = this.entityManager.getEntityManagerFactory().getCache();
+        Runnable eviction = () -> {
+            ids.forEach(id -> cache.evict(RefreshToken.class, id));
+            evictNaturalIds(tokenHashes);
+        };
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        }
+    }
+
+    /**
+     * В API {@link Cache} нет вытеснения отдельной записи natural id, поэтому ключ строится через
+     * стратегию доступа региона. Сессия нужна только для tenant id в ключе.
+     */
+    private void evictNaturalIds(List<String> tokenHashes) {
+        if (tokenHashes.isEmpty()) return;
+
+        SessionFactoryImplementor sessionFactory = this.entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class);
+        EntityPersister persister = sessionFactory.getMappingMetamodel().getEntityDescriptor(RefreshToken.class);
+        NaturalIdDataAccess naturalIdAccess = persister.getNaturalIdCacheAccessStrategy();
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            SharedSessionContractImplementor sessionImplementor = (SharedSessionContractImplementor) session;
+            tokenHashes.forEach(tokenHash -> naturalIdAccess.evict(
+                    naturalIdAccess.generateCacheKey(tokenHash, persister, sessionImplementor)
+            ));
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package ru.stroy1click.auth.store.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.stroy1click.auth.entity.RefreshToken;
+import ru.stroy1click.auth.invalidation.InvalidationBus;
+import ru.stroy1click.auth.invalidation.InvalidationEvent;
+import ru.stroy1click.auth.invalidation.InvalidationListener;
+import ru.stroy1click.auth.store.RefreshTokenStore;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Хранилище, которое отдает активные токены из ограниченного по размеру кэша в памяти и пишет
+ * все изменения в {@link JpaRefreshTokenStore}. Запись в кэш выполняется только после коммита,
+ * инвалидация - сразу и повторно после коммита. Время жизни записи ограничено и сроком действия
+ * токена, и {@code refresh-token.store.tiered.ttl}, что ограничивает рассинхронизацию между нодами,
+ * если событие {@link InvalidationBus} не дошло. Изменяющие методы открывают собственную транзакцию,
+ * чтобы повторная инвалидация всегда выполнялась после коммита.
+ * <p>
+ * Прочитанный из базы токен кладется в кэш, только если за время чтения не было инвалидации
+ * этого токена или сессий какого-либо пользователя: иначе чтение, начатое до удаления, вернуло бы
+ * удаленный токен в кэш уже после инвалидации. Для инвалидации всех сессий пользователя ведется
+ * индекс email -> token_hash закэшированных токенов.
+ */
+@Slf4j
+@Primary
+@Component
+@ConditionalOnProperty(prefix = "refresh-token.store", name = "type", havingValue = "tiered")
+public class TieredRefreshTokenStore implements RefreshTokenStore, InvalidationListener {
+
+    private final JpaRefreshTokenStore delegate;
+
+    private final InvalidationBus invalidationBus;
+
+    private static final int GENERATION_STRIPES = 64;
+
+    private final Cache<String, CachedRefreshToken> cache;
+
+    /**
+     * Token_hash закэшированных токенов по email. Изменяется только внутри {@code compute} по email,
+     * поэтому множества не обязаны быть потокобезопасными.
+     */
+    private final ConcurrentMap<String, Set<String>> tokenHashesByEmail = new ConcurrentHashMap<>();
+
+    /**
+     * Счетчики инвалидаций токенов по страйпам token_hash и счетчик инвалидаций пользователей.
+     * Оба только растут, поэтому их сумма меняется при любой инвалидации, затрагивающей токен.
+     */
+    private final AtomicLongArray tokenGenerations = new AtomicLongArray(GENERATION_STRIPES);
+
+    private final AtomicLong userGeneration = new AtomicLong();
+
+    public TieredRefreshTokenStore(JpaRefreshTokenStore delegate,
+                                   InvalidationBus invalidationBus,
+                                   @Value("${refresh-token.store.tiered.max-size}") long maxSize,
+                                   @Value("${refresh-token.store.tiered.ttl}") Duration ttl){
+        this.delegate = delegate;
+        this.invalidationBus = invalidationBus;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new TokenExpiry(ttl))
+                .removalListener(this::onRemoval)
+                .build();
+    }
+
+    @Override
+    public RefreshToken save(RefreshToken refreshToken) {
+        RefreshToken saved = this.delegate.save(refreshToken);
+        CachedRefreshToken cached = CachedRefreshToken.of(saved);
+        afterCommit(() -> put(cached));
+        return saved;
+    }
+
+    @Override
+    public List<RefreshToken> saveAll(List<RefreshToken> refreshTokens) {
+        List<RefreshToken> saved = this.delegate.saveAll(refreshTokens);
+        List<CachedRefreshToken> cached = saved.stream().map(CachedRefreshToken::of).toList();
+        afterCommit(() -> cached.forEach(this::put));
+        return saved;
+    }
+
+    @Override
+    public Optional<RefreshToken> findByTokenHash(String tokenHash) {
+        CachedRefreshToken cached = this.cache.getIfPresent(tokenHash);
+        if (cached != null) return Optional.of(cached.toEntity());
+
+        long generation = generation(tokenHash);
+        Optional<RefreshToken> refreshToken = this.delegate.findByTokenHash(tokenHash);
+        refreshToken.ifPresent(token -> putIfNotInvalidated(CachedRefreshToken.of(token), generation));
+        return refreshToken;
+    }
+
+    @Override
+    @Transactional
+    public boolean extend(String tokenHash, Duration step, Duration maxLifetime) {
+        invalidate(tokenHash);
+        return this.delegate.extend(tokenHash, step, maxLifetime);
+    }
+
+    @Override
+    @Transactional
+    public boolean deleteByTokenHash(String tokenHash) {
+        invalidate(tokenHash);
+        return this.delegate.deleteByTokenHash(tokenHash);
+    }
+
+    @Override
+    @Transactional
+    public int deleteAllByUserEmail(String userEmail) {
+        invalidateUser(userEmail);
+        return this.delegate.deleteAllByUserEmail(userEmail);
+    }
+
+    @Override
+    public long lockAndCountActiveSessions(String userEmail) {
+        return this.delegate.lockAndCountActiveSessions(userEmail);
+    }
+
+    @Override
+    @Transactional
+    public int evictOldestSessions(String userEmail, long count) {
+        invalidateUser(userEmail);
+        return this.delegate.evictOldestSessions(userEmail, count);
+    }
+
+    public void invalidate(String tokenHash) {
+        invalidateLocally(tokenHash);
+        this.invalidationBus.publish(InvalidationEvent.of(InvalidationEvent.Type.TOKEN, tokenHash));
+    }
+
+    public void invalidateUser(String userEmail) {
+        invalidateUserLocally(userEmail);
+        this.invalidationBus.publish(InvalidationEvent.of(InvalidationEvent.Type.USER, userEmail));
+    }
+
+    @Override
+    public void onInvalidation(List<InvalidationEvent> events) {
+        for (InvalidationEvent event : events) {
+            switch (event.type()) {
+                case TOKEN -> invalidateLocally(event.key());
+                case USER -> invalidateUserLocally(event.key());
+                default -> { }
+            }
+        }
+    }
+
+    @Override
+    public void onResync() {
+        this.userGeneration.incrementAndGet();
+        this.cache.invalidateAll();
+        this.tokenHashesByEmail.clear();
+    }
+
+    private void put(CachedRefreshToken cached) {
+        this.tokenHashesByEmail.compute(cached.userEmail(), (email, tokenHashes) -> {
+            Set<String> result = tokenHashes != null ? tokenHashes : new HashSet<>();
+            result.add(cached.tokenHash());
+            this.cache.put(cached.tokenHash(), cached);
+            return result;
+        });
+    }
+
+    /**
+     * Инвалидация сначала увеличивает счетчик, потом удаляет запись. Поэтому либо повторная
+     * проверка после записи увидит новый счетчик и уберет запись, либо удаление выполнится уже
+     * после записи.
+     */
+    private void putIfNotInvalidated(CachedRefreshToken cached, long generation) {
+        if (generation(cached.tokenHash()) != generation) return;
+
+        put(cached);
+        if (generation(cached.tokenHash()) != generation) {
+            this.cache.asMap().remove(cached.tokenHash(), cached);
+        }
+    }
+
+    private long generation(String tokenHash) {
+        return this.tokenGenerations.get(stripe(tokenHash)) + this.userGeneration.get();
+    }
+
+    private static int stripe(String tokenHash) {
+        return Math.floorMod(tokenHash.hashCode(), GENERATION_STRIPES);
+    }
+
+    private void invalidateLocally(String tokenHash) {
+        Runnable invalidation = () -> {
+            this.tokenGenerations.incrementAndGet(stripe(tokenHash));
+            this.cache.invalidate(tokenHash);
+        };
+        invalidation.run();
+        afterCommit(invalidation);
+    }
+
+    private void invalidateUserLocally(String userEmail) {
+        Runnable invalidation = () -> {
+            this.userGeneration.incrementAndGet();
+            Set<String> tokenHashes = this.tokenHashesByEmail.remove(userEmail);
+            if (tokenHashes != null) this.cache.invalidateAll(tokenHashes);
+        };
+        invalidation.run();
+        afterCommit(invalidation);
+    }
+
+    /**
+     * Убирает token_hash из индекса, если токена больше нет в кэше. Выполняется асинхронно, а
+     * проверка под {@code compute} по email не дает удалить из индекса токен, закэшированный заново.
+     */
+    private void onRemoval(String tokenHash, CachedRefreshToken cached, RemovalCause cause) {
+        if (tokenHash == null || cached == null) return;
+
+        this.tokenHashesByEmail.computeIfPresent(cached.userEmail(), (email, tokenHashes) -> {
+            if (!this.cache.asMap().containsKey(tokenHash)) tokenHashes.remove(tokenHash);
+            return tokenHashes.isEmpty() ? null : tokenHashes;
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private record CachedRefreshToken(Integer id, String tokenHash, Instant expiryDate, Instant issuedAt,
+                                      String userEmail) {
+
+        static CachedRefreshToken of(RefreshToken refreshToken) {
+            return new CachedRefreshToken(refreshToken.getId(), refreshToken.getTokenHash(),
+                    refreshToken.getExpiryDate(), refreshToken.getIssuedAt(), refreshToken.getUserEmail());
+        }
+
+        RefreshToken toEntity() {
+            return RefreshToken.builder()
+                    .id(this.id)
+                    .tokenHash(this.tokenHash)
+                    .expiryDate(this.expiryDate)
+                    .issuedAt(this.issuedAt)
+                    .userEmail(this.userEmail)
+                    .build();
+        }
+    }
+
+    private record TokenExpiry(Duration ttl) implements Expiry<String, CachedRefreshToken> {
+
+        @Override
+        public long expireAfterCreate(String key, CachedRefreshToken value, long currentTime) {
+            Duration untilExpiry = Duration.between(Instant.now(), value.expiryDate());
+            if (untilExpiry.isNegative()) return 0;
+            return untilExpiry.compareTo(this.ttl) < 0 ? untilExpiry.toNanos() : this.ttl.toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedRefreshToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedRefreshToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package ru.stroy1click.auth.tracing;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.data.LinkData;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import io.opentelemetry.sdk.trace.samplers.SamplingDecision;
+import io.opentelemetry.sdk.trace.samplers.SamplingResult;
+
+import java.util.List;
+
+/**
+ * Head-сэмплер, выбирающий долю по пути входящего запроса.
+ * <p>
+ * Дочерние спаны наследуют решение родителя. Корневой серверный спан, не прошедший по доле,
+ * получает {@code RECORD_ONLY}, если для пути включен tail: такие трассы пишутся в память и
+ * экспортируются {@link TailSamplingSpanProcessor} только при ошибке или медленном ответе.
+ * Без tail спан не записывается вовсе, что для {@code /validate} почти ничего не стоит.
+ */
+public class EndpointSampler implements Sampler {
+
+    static final AttributeKey<String> URL_PATH = AttributeKey.stringKey("url.path");
+
+    private static final SamplingResult RECORD_ONLY = SamplingResult.create(SamplingDecision.RECORD_ONLY);
+
+    private final List<CompiledRule> rules;
+
+    private final Sampler fallback;
+
+    public EndpointSampler(List<TracingSamplingProperties.Rule> rules, Sampler fallback) {
+        this.rules = rules.stream()
+                .map(rule -> new CompiledRule(rule.path(), Sampler.traceIdRatioBased(rule.ratio()), rule.tail()))
+                .toList();
+        this.fallback = fallback;
+    }
+
+    @Override
+    public SamplingResult shouldSample(Context parentContext, String traceId, String name, SpanKind spanKind,
+                                       Attributes attributes, List<LinkData> parentLinks) {
+        Span parent = Span.fromContext(parentContext);
+        SpanContext parentSpanContext = parent.getSpanContext();
+        if (parentSpanContext.isValid()) {
+            if (parentSpanContext.isSampled()) return SamplingResult.recordAndSample();
+            return parent.isRecording() ? RECORD_ONLY : SamplingResult.drop();
+        }
+
+        String path = attributes.get(URL_PATH);
+        CompiledRule rule = spanKind == SpanKind.SERVER && path != null ? ruleFor(path) : null;
+        if (rule == null) {
+            return this.fallback.shouldSample(parentContext, traceId, name, spanKind, attributes, parentLinks);
+        }
+
+        SamplingResult result = rule.sampler().shouldSample(parentContext, traceId, name, spanKind, attributes, parentLinks);
+        if (result.getDecision() == SamplingDecision.RECORD_AND_SAMPLE || !rule.tail()) return result;
+        return RECORD_ONLY;
+    }
+
+    @Override
+    public String getDescription() {
+        return "EndpointSampler{rules=" + this.rules.size() + ", fallback=" + this.fallback.getDescription() + "}";
+    }
+
+    @Override
+    public String toString() {
+        return getDescription();
+    }
+
+    private CompiledRule ruleFor(String path) {
+        for (CompiledRule rule : this.rules) {
+            if (path.startsWith(rule.path())) return rule;
+        }
+        return null;
+    }
+
+    private record CompiledRule(String path, Sampler sampler, boolean tail) {
+    }
+}
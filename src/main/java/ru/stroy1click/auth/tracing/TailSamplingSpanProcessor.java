@@ -0,0 +1,191 @@
+package ru.stroy1click.auth.tracing;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tail-правило для трасс, которые {@link EndpointSampler} записал без сэмплирования. Законченные
+ * спаны копятся в памяти по trace id; когда завершается локальный корень, трасса экспортируется,
+ * если ответ был ошибкой (статус ERROR или HTTP код от 400) или длился не меньше
+ * {@code slow-threshold}, иначе отбрасывается. Сэмплированные спаны экспортирует штатный
+ * процессор, сюда они не попадают.
+ * <p>
+ * Оставленные спаны экспортируются не в потоке запроса: они кладутся в ограниченную очередь,
+ * которую отдельный поток отправляет пачками, как штатный batch процессор. При переполнении
+ * очереди спаны отбрасываются.
+ */
+public class TailSamplingSpanProcessor implements SpanProcessor {
+
+    static final AttributeKey<Long> HTTP_RESPONSE_STATUS_CODE = AttributeKey.longKey("http.response.status_code");
+
+    private static final int MAX_QUEUE_SIZE = 2048;
+
+    private static final int MAX_EXPORT_BATCH_SIZE = 512;
+
+    private static final Duration EXPORT_DELAY = Duration.ofSeconds(1);
+
+    private static final Duration EXPORT_TIMEOUT = Duration.ofSeconds(30);
+
+    private final List<SpanExporter> exporters = new CopyOnWriteArrayList<>();
+
+    private final Cache<String, Queue<SpanData>> pendingTraces;
+
+    private final long slowThresholdNanos;
+
+    private final BlockingQueue<SpanData> exportQueue = new ArrayBlockingQueue<>(MAX_QUEUE_SIZE);
+
+    private final AtomicLong droppedSpans = new AtomicLong();
+
+    private final Thread exportThread;
+
+    private volatile boolean running = true;
+
+    public TailSamplingSpanProcessor(Duration slowThreshold, int maxBufferedTraces) {
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.pendingTraces = Caffeine.newBuilder()
+                .maximumSize(maxBufferedTraces)
+                .expireAfterWrite(Duration.ofMinutes(1))
+                .build();
+        this.exportThread = Thread.ofPlatform()
+                .name("tail-sampling-exporter")
+                .daemon(true)
+                .start(this::exportLoop);
+    }
+
+    /**
+     * Экспортеры регистрируются при сборке SDK, до первого спана.
+     */
+    public void addExporter(SpanExporter exporter) {
+        this.exporters.add(exporter);
+    }
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {
+    }
+
+    @Override
+    public boolean isStartRequired() {
+        return false;
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span) {
+        SpanContext spanContext = span.getSpanContext();
+        if (spanContext.isSampled()) return;
+
+        SpanData spanData = span.toSpanData();
+        String traceId = spanContext.getTraceId();
+        SpanContext parent = span.getParentSpanContext();
+        if (parent.isValid() && !parent.isRemote()) {
+            this.pendingTraces.asMap()
+                    .computeIfAbsent(traceId, key -> new ConcurrentLinkedQueue<>())
+                    .add(spanData);
+            return;
+        }
+
+        Queue<SpanData> children = this.pendingTraces.asMap().remove(traceId);
+        if (!shouldKeep(spanData)) return;
+
+        if (children != null) children.forEach(this::enqueue);
+        enqueue(spanData);
+    }
+
+    @Override
+    public boolean isEndRequired() {
+        return true;
+    }
+
+    /**
+     * Отправляет накопленные спаны в вызывающем потоке.
+     */
+    @Override
+    public CompletableResultCode forceFlush() {
+        List<CompletableResultCode> results = new ArrayList<>();
+        List<SpanData> batch = new ArrayList<>(MAX_EXPORT_BATCH_SIZE);
+        while (this.exportQueue.drainTo(batch, MAX_EXPORT_BATCH_SIZE) > 0) {
+            results.addAll(export(batch));
+            batch = new ArrayList<>(MAX_EXPORT_BATCH_SIZE);
+        }
+        return CompletableResultCode.ofAll(results);
+    }
+
+    /**
+     * Экспортеры общие со штатным процессором, закрывает их он.
+     */
+    @Override
+    public CompletableResultCode shutdown() {
+        this.running = false;
+        try {
+            this.exportThread.join(EXPORT_DELAY.plus(EXPORT_TIMEOUT).toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.pendingTraces.invalidateAll();
+        return forceFlush();
+    }
+
+    /**
+     * Число спанов, отброшенных из-за переполнения очереди экспорта.
+     */
+    public long getDroppedSpans() {
+        return this.droppedSpans.get();
+    }
+
+    private void enqueue(SpanData span) {
+        if (!this.exportQueue.offer(span)) this.droppedSpans.incrementAndGet();
+    }
+
+    private void exportLoop() {
+        List<SpanData> batch = new ArrayList<>(MAX_EXPORT_BATCH_SIZE);
+        while (this.running) {
+            try {
+                SpanData first = this.exportQueue.poll(EXPORT_DELAY.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+
+                batch.add(first);
+                this.exportQueue.drainTo(batch, MAX_EXPORT_BATCH_SIZE - 1);
+                CompletableResultCode.ofAll(export(batch)).join(EXPORT_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+                batch = new ArrayList<>(MAX_EXPORT_BATCH_SIZE);
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                // пачка теряется, как и при ошибке экспорта в штатном процессоре
+                batch = new ArrayList<>(MAX_EXPORT_BATCH_SIZE);
+            }
+        }
+    }
+
+    private List<CompletableResultCode> export(List<SpanData> batch) {
+        return this.exporters.stream().map(exporter -> exporter.export(batch)).toList();
+    }
+
+    private boolean shouldKeep(SpanData span) {
+        if (span.getStatus().getStatusCode() == StatusCode.ERROR) return true;
+
+        Long statusCode = span.getAttributes().get(HTTP_RESPONSE_STATUS_CODE);
+        if (statusCode != null && statusCode >= 400) return true;
+
+        return span.getEndEpochNanos() - span.getStartEpochNanos() >= this.slowThresholdNanos;
+    }
+}
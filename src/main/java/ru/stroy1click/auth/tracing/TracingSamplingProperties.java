@@ -0,0 +1,32 @@
+package ru.stroy1click.auth.tracing;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Настройки сэмплирования трасс по эндпоинтам.
+ *
+ * @param rules правила по префиксу пути, применяется первое подходящее; для остальных путей
+ *              решение принимает сэмплер из {@code otel.traces.sampler}
+ * @param slowThreshold запросы дольше этого порога сохраняются tail-правилом
+ * @param maxBufferedTraces сколько несэмплированных трасс одновременно держится в памяти в
+ *                          ожидании tail-решения
+ */
+@ConfigurationProperties("tracing.sampling")
+public record TracingSamplingProperties(List<Rule> rules, Duration slowThreshold, int maxBufferedTraces) {
+
+    public TracingSamplingProperties {
+        rules = rules == null ? List.of() : List.copyOf(rules);
+    }
+
+    /**
+     * @param path префикс {@code url.path}
+     * @param ratio доля трасс, которые сэмплируются сразу
+     * @param tail записывать ли остальные трассы, чтобы сохранить ошибочные и медленные; без этого
+     *             несэмплированный запрос не создает записывающих спанов
+     */
+    public record Rule(String path, double ratio, boolean tail) {
+    }
+}
@@ -0,0 +1,46 @@
+package ru.stroy1click.auth.util;
+
+/**
+ * Маскирование токенов и email в логах. Методы возвращают обертку, которая маскирует значение
+ * только в {@code toString()}, поэтому для отключенных или отброшенных сэмплером сообщений
+ * работа не выполняется.
+ */
+public class LogMaskUtils {
+
+    private static final int VISIBLE_TOKEN_PREFIX = 4;
+
+    /**
+     * Оставляет первые символы токена и его длину: {@code ba9a***(36)}.
+     */
+    public static Object token(String token) {
+        return new Masked(token, false);
+    }
+
+    /**
+     * Оставляет первый символ локальной части и домен: {@code m***@gmail.com}.
+     */
+    public static Object email(String email) {
+        return new Masked(email, true);
+    }
+
+    static String maskToken(String token) {
+        if (token == null) return "null";
+        if (token.length() <= VISIBLE_TOKEN_PREFIX * 2) return "***(" + token.length() + ")";
+        return token.substring(0, VISIBLE_TOKEN_PREFIX) + "***(" + token.length() + ")";
+    }
+
+    static String maskEmail(String email) {
+        if (email == null) return "null";
+        int at = email.indexOf('@');
+        if (at <= 0) return "***";
+        return email.charAt(0) + "***" + email.substring(at);
+    }
+
+    private record Masked(String value, boolean email) {
+
+        @Override
+        public String toString() {
+            return this.email ? maskEmail(this.value) : maskToken(this.value);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package ru.stroy1click.auth.util;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Множество отозванных ключей со сроком действия. Проверка идет сначала по фильтру Блума и только
+ * при положительном ответе - по точному множеству, поэтому для неотозванного ключа (почти все
+ * проверки) это несколько чтений битового массива без блокировок. Истекшие ключи удаляются
+ * {@link #purgeExpired()}, фильтр при этом пересобирается.
+ */
+public class RevocationSet {
+
+    private final int expectedInsertions;
+
+    private final double falsePositiveProbability;
+
+    private final Map<String, Instant> entries = new ConcurrentHashMap<>();
+
+    private volatile BloomFilter bloomFilter;
+
+    public RevocationSet(int expectedInsertions, double falsePositiveProbability) {
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.bloomFilter = new BloomFilter(expectedInsertions, falsePositiveProbability);
+    }
+
+    public synchronized void add(String key, Instant expiry) {
+        this.entries.put(key, expiry);
+        this.bloomFilter.put(key);
+    }
+
+    public boolean contains(String key) {
+        if (!this.bloomFilter.mightContain(key)) return false;
+
+        Instant expiry = this.entries.get(key);
+        return expiry != null && expiry.isAfter(Instant.now());
+    }
+
+    /**
+     * @return количество удаленных ключей
+     */
+    public synchronized int purgeExpired() {
+        Instant now = Instant.now();
+        int before = this.entries.size();
+        this.entries.values().removeIf(expiry -> !expiry.isAfter(now));
+
+        BloomFilter rebuilt = new BloomFilter(
+                Math.max(this.expectedInsertions, this.entries.size() * 2),
+                this.falsePositiveProbability
+        );
+        this.entries.keySet().forEach(rebuilt::put);
+        this.bloomFilter = rebuilt;
+        return before - this.entries.size();
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+}
@@ -0,0 +1,24 @@
+package ru.stroy1click.auth.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+public class TokenDigestUtils {
+
+    private static final HexFormat HEX_FORMAT = HexFormat.of();
+
+    /**
+     * Возвращает SHA-256 дайджест токена в виде hex строки фиксированной длины (64 символа).
+     * В базе хранится только дайджест, поиск по нему идет через уникальный индекс.
+     */
+    public static String digest(String token){
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            return HEX_FORMAT.formatHex(messageDigest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e){
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+}
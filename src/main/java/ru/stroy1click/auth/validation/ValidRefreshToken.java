@@ -0,0 +1,25 @@
+package ru.stroy1click.auth.validation;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Проверяет формат refresh токена в зависимости от {@code refresh-token.mode}: UUID для
+ * opaque токенов, компактный JWS для подписанных.
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+@Constraint(validatedBy = ValidRefreshTokenValidator.class)
+public @interface ValidRefreshToken {
+
+    String message() default "{validation.refresh.token.request.refresh_token.length}";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
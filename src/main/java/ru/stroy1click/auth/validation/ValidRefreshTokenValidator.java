@@ -0,0 +1,37 @@
+package ru.stroy1click.auth.validation;
+
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+import org.springframework.beans.factory.annotation.Value;
+import ru.stroy1click.auth.model.RefreshTokenMode;
+
+import java.util.regex.Pattern;
+
+public class ValidRefreshTokenValidator implements ConstraintValidator<ValidRefreshToken, String> {
+
+    private static final int OPAQUE_TOKEN_LENGTH = 36;
+
+    private static final int SIGNED_TOKEN_MAX_LENGTH = 1024;
+
+    private static final Pattern COMPACT_JWS = Pattern.compile("[A-Za-z0-9_-]+\\.[A-Za-z0-9_-]+\\.[A-Za-z0-9_-]+");
+
+    @Value("${refresh-token.mode}")
+    private RefreshTokenMode mode;
+
+    @Override
+    public boolean isValid(String value, ConstraintValidatorContext context) {
+        if (value == null || value.isBlank()) return true;
+
+        if (this.mode != RefreshTokenMode.SIGNED) {
+            return value.length() == OPAQUE_TOKEN_LENGTH;
+        }
+
+        if (value.length() <= SIGNED_TOKEN_MAX_LENGTH && COMPACT_JWS.matcher(value).matches()) {
+            return true;
+        }
+        context.disableDefaultConstraintViolation();
+        context.buildConstraintViolationWithTemplate("{validation.refresh.token.request.refresh_token.format}")
+                .addConstraintViolation();
+        return false;
+    }
+}
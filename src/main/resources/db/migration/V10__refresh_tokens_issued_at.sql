@@ -0,0 +1,5 @@
+-- Момент выдачи сессии: продление ограничено issued_at + max-lifetime, а не текущим моментом,
+-- иначе регулярно продлеваемая сессия жила бы бессрочно. Значение по умолчанию вычисляется один
+-- раз при добавлении колонки, поэтому существующие строки не переписываются, а их срок жизни
+-- отсчитывается от момента миграции.
+alter table auth.refresh_tokens add column issued_at timestamp not null default localtimestamp;
@@ -0,0 +1,8 @@
+-- Отзывы сессий записывает приложение и только в режиме подписанных refresh токенов (см.
+-- RefreshTokenRepository): триггер писал журнал и слал NOTIFY в любом режиме, а продление,
+-- переносящее строку в другую партицию, выполняется как удаление и вставка и записывало живую
+-- сессию как отозванную.
+
+drop trigger refresh_tokens_record_revoked_session on auth.refresh_tokens;
+
+drop function auth.record_revoked_session();
@@ -0,0 +1,11 @@
+alter table auth.refresh_tokens add column token_hash char(64);
+
+update auth.refresh_tokens set token_hash = encode(sha256(convert_to(token, 'UTF8')), 'hex');
+
+alter table auth.refresh_tokens alter column token_hash set not null;
+
+alter table auth.refresh_tokens drop column token;
+
+create unique index if not exists refresh_tokens_token_hash_uidx on auth.refresh_tokens(token_hash);
+
+create index if not exists refresh_tokens_user_email_expiry_date_idx on auth.refresh_tokens(user_email, expiry_date);
@@ -0,0 +1,51 @@
+-- Таблица refresh_tokens партиционируется помесячно по expiry_date, чтобы просроченные
+-- токены удалялись целыми партициями (см. RefreshTokenMaintenanceServiceImpl).
+-- Уникальный индекс в партиционированной таблице обязан включать ключ партиционирования,
+-- поэтому индекс по token_hash становится обычным: sha256 от случайного UUID не коллизирует.
+
+alter table auth.refresh_tokens rename to refresh_tokens_legacy;
+
+alter index auth.refresh_tokens_pkey rename to refresh_tokens_legacy_pkey;
+
+alter table auth.refresh_tokens_legacy alter column id drop identity;
+
+create sequence if not exists auth.refresh_tokens_id_seq as int;
+
+create table auth.refresh_tokens(
+    id int not null default nextval('auth.refresh_tokens_id_seq'),
+    user_email varchar not null,
+    token_hash char(64) not null,
+    expiry_date timestamp not null,
+    primary key (id, expiry_date)
+) partition by range (expiry_date);
+
+alter sequence auth.refresh_tokens_id_seq owned by auth.refresh_tokens.id;
+
+create table auth.refresh_tokens_default partition of auth.refresh_tokens default;
+
+do $$
+declare
+    month_start timestamp := date_trunc('month', localtimestamp);
+begin
+    for i in 0..3 loop
+        execute format(
+                'create table if not exists auth.%I partition of auth.refresh_tokens for values from (%L) to (%L)',
+                'refresh_tokens_p' || to_char(month_start + make_interval(months => i), 'YYYY_MM'),
+                month_start + make_interval(months => i),
+                month_start + make_interval(months => i + 1)
+        );
+    end loop;
+end $$;
+
+insert into auth.refresh_tokens(id, user_email, token_hash, expiry_date)
+select id, user_email, token_hash, expiry_date from auth.refresh_tokens_legacy;
+
+select setval('auth.refresh_tokens_id_seq', coalesce((select max(id) from auth.refresh_tokens), 0) + 1, false);
+
+drop table auth.refresh_tokens_legacy;
+
+create index refresh_tokens_token_hash_idx on auth.refresh_tokens(token_hash);
+
+create index refresh_tokens_user_email_expiry_date_idx on auth.refresh_tokens(user_email, expiry_date);
+
+create index refresh_tokens_expiry_date_idx on auth.refresh_tokens(expiry_date);
@@ -0,0 +1,2 @@
+-- Hibernate выделяет id блоками по 50 (pooled-lo), шаг последовательности должен совпадать.
+alter sequence auth.refresh_tokens_id_seq increment by 50;
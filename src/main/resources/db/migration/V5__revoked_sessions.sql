@@ -0,0 +1,31 @@
+-- Журнал отозванных сессий для режима подписанных refresh токенов: ноды валидируют токен без
+-- обращения к refresh_tokens и узнают об отзыве, опрашивая эту таблицу.
+-- Запись делает триггер на удаление из refresh_tokens, поэтому логаут, выход со всех устройств
+-- и вытеснение старых сессий попадают в журнал одинаково. Просроченные строки не пишутся:
+-- подписанный токен с истекшим exp отклоняется и так.
+
+create table auth.revoked_sessions(
+    token_hash char(64) primary key,
+    expiry_date timestamp not null,
+    revoked_at timestamp not null default clock_timestamp()
+);
+
+create index revoked_sessions_revoked_at_idx on auth.revoked_sessions (revoked_at);
+
+create index revoked_sessions_expiry_date_idx on auth.revoked_sessions (expiry_date);
+
+create function auth.record_revoked_session() returns trigger
+language plpgsql as $$
+begin
+    if old.expiry_date > localtimestamp then
+        insert into auth.revoked_sessions (token_hash, expiry_date)
+        values (old.token_hash, old.expiry_date)
+        on conflict (token_hash) do nothing;
+    end if;
+    return old;
+end;
+$$;
+
+create trigger refresh_tokens_record_revoked_session
+    after delete on auth.refresh_tokens
+    for each row execute function auth.record_revoked_session();
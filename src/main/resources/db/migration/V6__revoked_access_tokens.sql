@@ -0,0 +1,12 @@
+-- Denylist отозванных access токенов по claim jti. Строка нужна только до истечения exp токена,
+-- после этого ее удаляет RefreshTokenMaintenanceServiceImpl.
+
+create table auth.revoked_access_tokens(
+    jti varchar(36) primary key,
+    expiry_date timestamp not null,
+    revoked_at timestamp not null default clock_timestamp()
+);
+
+create index revoked_access_tokens_revoked_at_idx on auth.revoked_access_tokens (revoked_at);
+
+create index revoked_access_tokens_expiry_date_idx on auth.revoked_access_tokens (expiry_date);
@@ -0,0 +1,19 @@
+-- Отзыв сессии сразу рассылается нодам через NOTIFY (см. InvalidationBus), опрос
+-- revoked_sessions остается страховкой. Формат payload совпадает с InvalidationEvent:
+-- отправитель "db" и событие S|exp|token_hash; exp переводится в epoch в часовом поясе сессии,
+-- в котором приложение пишет expiry_date.
+
+create or replace function auth.record_revoked_session() returns trigger
+language plpgsql as $$
+begin
+    if old.expiry_date > localtimestamp then
+        insert into auth.revoked_sessions (token_hash, expiry_date)
+        values (old.token_hash, old.expiry_date)
+        on conflict (token_hash) do nothing;
+
+        perform pg_notify('auth_invalidation',
+            'db' || chr(10) || 'S|' || extract(epoch from old.expiry_date::timestamptz)::bigint || '|' || old.token_hash);
+    end if;
+    return old;
+end;
+$$;
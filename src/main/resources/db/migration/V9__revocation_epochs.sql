@@ -0,0 +1,14 @@
+-- Эпохи отзыва: access токены субъекта с iat раньше not_before недействительны. subject_type 'U' -
+-- email пользователя, 'R' - роль. Массовый отзыв - один upsert, а не удаление по каждому токену.
+-- Строка нужна, пока живы выданные до not_before токены, потом ее удаляет
+-- RefreshTokenMaintenanceServiceImpl.
+
+create table auth.revocation_epochs(
+    subject_type char(1) not null,
+    subject varchar(255) not null,
+    not_before timestamp not null,
+    updated_at timestamp not null default clock_timestamp(),
+    primary key (subject_type, subject)
+);
+
+create index revocation_epochs_updated_at_idx on auth.revocation_epochs (updated_at);
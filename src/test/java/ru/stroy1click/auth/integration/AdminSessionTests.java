@@ -0,0 +1,147 @@
+package ru.stroy1click.auth.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import ru.stroy1click.auth.client.UserClient;
+import ru.stroy1click.auth.dto.UserDto;
+import ru.stroy1click.auth.model.Role;
+import ru.stroy1click.auth.model.SessionView;
+import ru.stroy1click.auth.service.JwtService;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+@Import({TestcontainersConfiguration.class})
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "admin.sessions.page-size=100")
+class AdminSessionTests {
+
+    private static final String EMAIL = "admin_sessions_user@gmail.com";
+
+    private static final int SESSIONS = 250;
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockitoBean
+    private UserClient userClient;
+
+    private Instant base;
+
+    @BeforeEach
+    public void setUp() {
+        this.jdbcTemplate.update("delete from auth.refresh_tokens where user_email = ?", EMAIL);
+        this.base = Instant.now().plus(1, ChronoUnit.DAYS).truncatedTo(ChronoUnit.SECONDS);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < SESSIONS; i++) {
+            // по две сессии на одну дату истечения, чтобы курсор опирался на id
+            rows.add(new Object[]{EMAIL, "%064d".formatted(i), Timestamp.from(this.base.plusSeconds(i / 2))});
+        }
+        rows.add(new Object[]{EMAIL, "x".repeat(64), Timestamp.from(Instant.now().minus(1, ChronoUnit.DAYS))});
+        this.jdbcTemplate.batchUpdate("""
+                insert into auth.refresh_tokens (id, user_email, token_hash, expiry_date)
+                values (nextval('auth.refresh_tokens_id_seq'), ?, ?, ?)
+                """, rows);
+    }
+
+    @Test
+    public void streamByUser_ShouldReturnAllActiveSessionsInOrder_WhenSpanningSeveralPages() throws Exception {
+        List<SessionView> sessions = get("/api/v1/admin/sessions/by-user?email=" + EMAIL, Role.ROLE_ADMIN);
+
+        Assertions.assertEquals(SESSIONS, sessions.size());
+        for (int i = 1; i < sessions.size(); i++) {
+            SessionView previous = sessions.get(i - 1);
+            SessionView current = sessions.get(i);
+            Assertions.assertTrue(previous.expiryDate().isBefore(current.expiryDate())
+                    || previous.expiryDate().equals(current.expiryDate()) && previous.id() < current.id());
+        }
+    }
+
+    @Test
+    public void streamByUser_ShouldContinueAfterCursor_WhenCursorGiven() throws Exception {
+        List<SessionView> first = get("/api/v1/admin/sessions/by-user?email=" + EMAIL + "&limit=101", Role.ROLE_ADMIN);
+        SessionView last = first.getLast();
+
+        List<SessionView> rest = get("/api/v1/admin/sessions/by-user?email=" + EMAIL
+                + "&afterExpiry=" + last.expiryDate() + "&afterId=" + last.id(), Role.ROLE_ADMIN);
+
+        Assertions.assertEquals(101, first.size());
+        Assertions.assertEquals(SESSIONS - 101, rest.size());
+        Assertions.assertTrue(rest.stream().noneMatch(first::contains));
+    }
+
+    @Test
+    public void streamByExpiry_ShouldReturnSessionsInRange() throws Exception {
+        Instant from = this.base.plusSeconds(10);
+        Instant to = this.base.plusSeconds(20);
+
+        List<SessionView> sessions = get("/api/v1/admin/sessions/by-expiry?from=" + from + "&to=" + to, Role.ROLE_ADMIN);
+
+        Assertions.assertEquals(20, sessions.size());
+        Assertions.assertTrue(sessions.stream().allMatch(session ->
+                !session.expiryDate().isBefore(from) && session.expiryDate().isBefore(to)));
+    }
+
+    @Test
+    public void streamByExpiry_ShouldReturnBadRequest_WhenRangeIsEmpty() {
+        ResponseEntity<String> response = exchange("/api/v1/admin/sessions/by-expiry?from="
+                + this.base + "&to=" + this.base, Role.ROLE_ADMIN);
+
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    public void streamByUser_ShouldReturnForbidden_WhenNotAdmin() {
+        ResponseEntity<String> response = exchange("/api/v1/admin/sessions/by-user?email=" + EMAIL, Role.ROLE_USER);
+
+        Assertions.assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+    }
+
+    @Test
+    public void startup_ShouldReturnForbidden_WhenNotAdmin() {
+        ResponseEntity<String> response = exchange("/actuator/startup", Role.ROLE_USER);
+
+        Assertions.assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+    }
+
+    private List<SessionView> get(String url, Role role) throws Exception {
+        ResponseEntity<String> response = exchange(url, role);
+        Assertions.assertEquals(HttpStatus.OK, response.getStatusCode());
+        Assertions.assertTrue(MediaType.APPLICATION_NDJSON.isCompatibleWith(response.getHeaders().getContentType()));
+
+        List<SessionView> sessions = new ArrayList<>();
+        if (response.getBody() == null) return sessions;
+        for (String line : response.getBody().split("\n")) {
+            sessions.add(this.objectMapper.readValue(line, SessionView.class));
+        }
+        return sessions;
+    }
+
+    private ResponseEntity<String> exchange(String url, Role role) {
+        String token = this.jwtService.generate(new UserDto(1L, "Kate", "Thompson",
+                "admin@gmail.com", "{noop}password123", true, role));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        return this.testRestTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+    }
+}
@@ -14,6 +14,7 @@ import ru.stroy1click.auth.client.UserClient;
 import ru.stroy1click.auth.dto.UserDto;
 import ru.stroy1click.auth.model.AuthRequest;
 import ru.stroy1click.auth.model.JwtResponse;
+import ru.stroy1click.auth.model.RefreshTokenRequest;
 import ru.stroy1click.auth.model.Role;
 
 import static org.mockito.Mockito.when;
@@ -54,6 +55,61 @@ class AuthTests {
         Assertions.assertEquals("Пользователь зарегистрирован", responseEntity.getBody());
     }
 
+    @Test
+    public void registration_ShouldCreateUserOnce_WhenRetriedWithSameIdempotencyKey(){
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Idempotency-Key", "registration-retry-key");
+        HttpEntity<UserDto> httpEntity = new HttpEntity<>(UserDto.builder()
+                .firstName("Anna")
+                .lastName("Smith")
+                .email("anna_smith@gmail.com")
+                .password("password123")
+                .emailConfirmed(false)
+                .role(Role.ROLE_USER)
+                .build(), headers);
+
+        when(this.userClient.create(Mockito.any())).thenReturn(new UserDto());
+
+        ResponseEntity<String> first = this.testRestTemplate.exchange(
+                "/api/v1/auth/registration", HttpMethod.POST, httpEntity, String.class
+        );
+        ResponseEntity<String> second = this.testRestTemplate.exchange(
+                "/api/v1/auth/registration", HttpMethod.POST, httpEntity, String.class
+        );
+
+        Assertions.assertTrue(first.getStatusCode().is2xxSuccessful());
+        Assertions.assertEquals(first.getStatusCode(), second.getStatusCode());
+        Assertions.assertEquals(first.getBody(), second.getBody());
+        Mockito.verify(this.userClient, Mockito.times(1)).create(Mockito.any());
+    }
+
+    @Test
+    public void registration_ShouldReturnValidationError_WhenIdempotencyKeyReusedWithOtherBody(){
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Idempotency-Key", "registration-reused-key");
+        UserDto userDto = UserDto.builder()
+                .firstName("Anna")
+                .lastName("Brown")
+                .email("anna_brown@gmail.com")
+                .password("password123")
+                .emailConfirmed(false)
+                .role(Role.ROLE_USER)
+                .build();
+
+        when(this.userClient.create(Mockito.any())).thenReturn(new UserDto());
+
+        this.testRestTemplate.exchange(
+                "/api/v1/auth/registration", HttpMethod.POST, new HttpEntity<>(userDto, headers), String.class
+        );
+        userDto.setPassword("password456");
+        ResponseEntity<ProblemDetail> responseEntity = this.testRestTemplate.exchange(
+                "/api/v1/auth/registration", HttpMethod.POST, new HttpEntity<>(userDto, headers), ProblemDetail.class
+        );
+
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+        Assertions.assertEquals("Idempotency-Key уже использован с другим телом запроса", responseEntity.getBody().getDetail());
+    }
+
     @Test
     public void login_ShouldReturnTokens_WhenValidCredentials(){
         HttpEntity<AuthRequest> httpEntity = new HttpEntity<>(new AuthRequest("mike_thompson@gmail.com", "password123"));
@@ -551,4 +607,94 @@ class AuthTests {
         Assertions.assertTrue(responseEntity.getBody().getDetail().contains("Минимальная длина пароля составляет 8 символов, максимальная - 60 символов"));
     }
 
-}
\ No newline at end of file
+
+    @Test
+    public void logout_ShouldRevokeAccessToken_WhenBearerTokenPresent() {
+        when(this.userClient.getByEmail("mike_thompson@gmail.com")).thenReturn(new UserDto(1L,"Mike", "Thompson", "mike_thompson@gmail.com", "{noop}password123", true, Role.ROLE_USER));
+        JwtResponse tokens = this.testRestTemplate.exchange(
+                "/api/v1/auth/login",
+                HttpMethod.POST,
+                new HttpEntity<>(new AuthRequest("mike_thompson@gmail.com", "password123")),
+                JwtResponse.class
+        ).getBody();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(tokens.getAccessToken());
+        headers.set("X-Original-Uri", "/api/v1/users/1");
+        headers.set("X-Original-Method", "POST");
+
+        ResponseEntity<Void> beforeLogout = this.testRestTemplate.exchange(
+                "/api/v1/auth/validate", HttpMethod.GET, new HttpEntity<>(headers), Void.class);
+        ResponseEntity<String> logout = this.testRestTemplate.exchange(
+                "/api/v1/auth/logout", HttpMethod.POST,
+                new HttpEntity<>(new RefreshTokenRequest(tokens.getRefreshToken()), headers), String.class);
+        ResponseEntity<Void> afterLogout = this.testRestTemplate.exchange(
+                "/api/v1/auth/validate", HttpMethod.GET, new HttpEntity<>(headers), Void.class);
+
+        Assertions.assertEquals(HttpStatus.OK, beforeLogout.getStatusCode());
+        Assertions.assertEquals(HttpStatus.OK, logout.getStatusCode());
+        Assertions.assertEquals(HttpStatus.UNAUTHORIZED, afterLogout.getStatusCode());
+    }
+
+    @Test
+    public void validate_ShouldReturnIdentityHeaders_WhenTokenIsValid() {
+        when(this.userClient.getByEmail("mike_thompson@gmail.com")).thenReturn(new UserDto(1L,"Mike", "Thompson", "mike_thompson@gmail.com", "{noop}password123", true, Role.ROLE_USER));
+        JwtResponse tokens = this.testRestTemplate.exchange(
+                "/api/v1/auth/login",
+                HttpMethod.POST,
+                new HttpEntity<>(new AuthRequest("mike_thompson@gmail.com", "password123")),
+                JwtResponse.class
+        ).getBody();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(tokens.getAccessToken());
+        headers.set("X-Original-Uri", "/api/v1/orders/1");
+        headers.set("X-Original-Method", "POST");
+
+        ResponseEntity<Void> responseEntity = this.testRestTemplate.exchange(
+                "/api/v1/auth/validate", HttpMethod.GET, new HttpEntity<>(headers), Void.class);
+
+        Assertions.assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        Assertions.assertEquals("mike_thompson@gmail.com", responseEntity.getHeaders().getFirst("X-User-Email"));
+        Assertions.assertEquals("ROLE_USER", responseEntity.getHeaders().getFirst("X-User-Role"));
+        Assertions.assertEquals("true", responseEntity.getHeaders().getFirst("X-User-Email-Confirmed"));
+        Assertions.assertEquals("max-age=10", responseEntity.getHeaders().getCacheControl());
+    }
+
+    @Test
+    public void validate_ShouldNotReturnIdentityHeaders_WhenRoleDoesNotMatch() {
+        when(this.userClient.getByEmail("mike_thompson@gmail.com")).thenReturn(new UserDto(1L,"Mike", "Thompson", "mike_thompson@gmail.com", "{noop}password123", true, Role.ROLE_USER));
+        JwtResponse tokens = this.testRestTemplate.exchange(
+                "/api/v1/auth/login",
+                HttpMethod.POST,
+                new HttpEntity<>(new AuthRequest("mike_thompson@gmail.com", "password123")),
+                JwtResponse.class
+        ).getBody();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(tokens.getAccessToken());
+        headers.set("X-Original-Uri", "/api/v1/products/1");
+        headers.set("X-Original-Method", "DELETE");
+
+        ResponseEntity<Void> responseEntity = this.testRestTemplate.exchange(
+                "/api/v1/auth/validate", HttpMethod.GET, new HttpEntity<>(headers), Void.class);
+
+        Assertions.assertEquals(HttpStatus.UNAUTHORIZED, responseEntity.getStatusCode());
+        Assertions.assertNull(responseEntity.getHeaders().getFirst("X-User-Email"));
+        Assertions.assertEquals("no-store", responseEntity.getHeaders().getCacheControl());
+    }
+
+    @Test
+    public void validate_ShouldReturnCacheableResponse_WhenPublicRoute() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Original-Uri", "/api/v1/products/1");
+        headers.set("X-Original-Method", "GET");
+
+        ResponseEntity<Void> responseEntity = this.testRestTemplate.exchange(
+                "/api/v1/auth/validate", HttpMethod.GET, new HttpEntity<>(headers), Void.class);
+
+        Assertions.assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        Assertions.assertEquals("max-age=10", responseEntity.getHeaders().getCacheControl());
+        Assertions.assertNull(responseEntity.getHeaders().getPragma());
+    }
+}
@@ -0,0 +1,159 @@
+package ru.stroy1click.auth.integration;
+
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import ru.stroy1click.auth.client.UserClient;
+import ru.stroy1click.auth.dto.UserDto;
+import ru.stroy1click.auth.grpc.GrpcServer;
+import ru.stroy1click.auth.grpc.v1.*;
+import ru.stroy1click.auth.model.Role;
+import ru.stroy1click.auth.service.JwtService;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@Import({TestcontainersConfiguration.class})
+@SpringBootTest
+class GrpcTokenValidationTests {
+
+    @Autowired
+    private GrpcServer grpcServer;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @MockitoBean
+    private UserClient userClient;
+
+    private ManagedChannel channel;
+
+    private TokenValidationGrpc.TokenValidationBlockingStub blockingStub;
+
+    private String userToken;
+
+    @BeforeEach
+    public void setUp() {
+        this.channel = ManagedChannelBuilder.forAddress("localhost", this.grpcServer.getPort())
+                .usePlaintext()
+                .build();
+        this.blockingStub = TokenValidationGrpc.newBlockingStub(this.channel);
+        this.userToken = this.jwtService.generate(new UserDto(1L, "Mike", "Thompson",
+                "grpc_user@gmail.com", "{noop}password123", true, Role.ROLE_USER));
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        this.channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void validate_ShouldReturnIdentity_WhenTokenIsValid() {
+        ValidateResponse response = this.blockingStub.validate(request(this.userToken, "POST", "/api/v1/orders/1", 7));
+
+        Assertions.assertTrue(response.getValid());
+        Assertions.assertEquals(7, response.getCorrelationId());
+        Assertions.assertEquals("grpc_user@gmail.com", response.getIdentity().getEmail());
+        Assertions.assertEquals("ROLE_USER", response.getIdentity().getRole());
+        Assertions.assertTrue(response.getIdentity().getEmailConfirmed());
+    }
+
+    @Test
+    public void validate_ShouldReturnInvalid_WhenRoleDoesNotMatchOrTokenMissing() {
+        ValidateResponse adminRoute = this.blockingStub.validate(request(this.userToken, "DELETE", "/api/v1/products/1", 1));
+        ValidateResponse missingToken = this.blockingStub.validate(request("", "POST", "/api/v1/orders/1", 2));
+        ValidateResponse garbageToken = this.blockingStub.validate(request("not-a-jwt", "POST", "/api/v1/orders/1", 3));
+
+        Assertions.assertFalse(adminRoute.getValid());
+        Assertions.assertFalse(adminRoute.hasIdentity());
+        Assertions.assertFalse(missingToken.getValid());
+        Assertions.assertFalse(garbageToken.getValid());
+    }
+
+    @Test
+    public void validateBatch_ShouldAnswerInRequestOrder() {
+        ValidateBatchResponse response = this.blockingStub.validateBatch(ValidateBatchRequest.newBuilder()
+                .addRequests(request(this.userToken, "POST", "/api/v1/orders/1", 1))
+                .addRequests(request(this.userToken, "DELETE", "/api/v1/products/1", 2))
+                .addRequests(request("", "GET", "/api/v1/products/1", 3))
+                .build());
+
+        Assertions.assertEquals(List.of(true, false, true),
+                response.getResponsesList().stream().map(ValidateResponse::getValid).toList());
+        Assertions.assertEquals(List.of(1L, 2L, 3L),
+                response.getResponsesList().stream().map(ValidateResponse::getCorrelationId).toList());
+    }
+
+    @Test
+    public void validateBatch_ShouldFail_WhenBatchTooLarge() {
+        ValidateBatchRequest.Builder request = ValidateBatchRequest.newBuilder();
+        for (int i = 0; i < 1001; i++) {
+            request.addRequests(request(this.userToken, "POST", "/api/v1/orders/1", i));
+        }
+
+        Assertions.assertThrows(StatusRuntimeException.class, () -> this.blockingStub.validateBatch(request.build()));
+    }
+
+    @Test
+    public void validateStream_ShouldAnswerEveryRequest() throws InterruptedException {
+        List<ValidateResponse> responses = new CopyOnWriteArrayList<>();
+        CountDownLatch completed = new CountDownLatch(1);
+        StreamObserver<ValidateRequest> requests = TokenValidationGrpc.newStub(this.channel)
+                .validateStream(new StreamObserver<>() {
+
+                    @Override
+                    public void onNext(ValidateResponse response) {
+                        responses.add(response);
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        completed.countDown();
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        completed.countDown();
+                    }
+                });
+
+        for (int i = 0; i < 100; i++) {
+            requests.onNext(request(i % 2 == 0 ? this.userToken : "", "POST", "/api/v1/users/1", i));
+        }
+        requests.onCompleted();
+
+        Assertions.assertTrue(completed.await(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(100, responses.size());
+        Assertions.assertEquals(50, responses.stream().filter(ValidateResponse::getValid).count());
+    }
+
+    @Test
+    public void extractClaims_ShouldReturnIdentity_WhenTokenIsValid() {
+        ValidateResponse response = this.blockingStub.extractClaims(ExtractClaimsRequest.newBuilder()
+                .setToken(this.userToken)
+                .build());
+
+        Assertions.assertTrue(response.getValid());
+        Assertions.assertEquals("grpc_user@gmail.com", response.getIdentity().getEmail());
+    }
+
+    private ValidateRequest request(String token, String method, String uri, long correlationId) {
+        return ValidateRequest.newBuilder()
+                .setToken(token)
+                .setOriginalMethod(method)
+                .setOriginalUri(uri)
+                .setCorrelationId(correlationId)
+                .build();
+    }
+}
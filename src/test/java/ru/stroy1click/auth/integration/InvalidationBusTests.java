@@ -0,0 +1,96 @@
+package ru.stroy1click.auth.integration;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import ru.stroy1click.auth.client.UserClient;
+import ru.stroy1click.auth.entity.RefreshToken;
+import ru.stroy1click.auth.invalidation.InvalidationBus;
+import ru.stroy1click.auth.service.AccessTokenRevocationService;
+import ru.stroy1click.auth.service.RefreshTokenService;
+import ru.stroy1click.auth.service.SessionRevocationService;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+@Import({TestcontainersConfiguration.class})
+@SpringBootTest
+public class InvalidationBusTests {
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private AccessTokenRevocationService accessTokenRevocationService;
+
+    @Autowired
+    private SessionRevocationService sessionRevocationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private UserClient userClient;
+
+    @Test
+    public void findByToken_ShouldReturnEmpty_WhenOtherNodeDeletedCachedToken() {
+        RefreshToken created = this.refreshTokenService.createRefreshToken("bus_entity_user@gmail.com");
+        Assertions.assertTrue(this.refreshTokenService.findByToken(created.getToken()).isPresent());
+
+        this.jdbcTemplate.update("delete from auth.refresh_tokens where id = ?", created.getId());
+        notifyFromOtherNode("E||" + created.getId());
+
+        Assertions.assertTrue(eventually(() -> this.refreshTokenService.findByToken(created.getToken()).isEmpty()));
+    }
+
+    @Test
+    public void isRevoked_ShouldReturnTrue_WhenOtherNodeRevokedAccessToken() {
+        String jti = UUID.randomUUID().toString();
+        Assertions.assertFalse(this.accessTokenRevocationService.isRevoked(jti));
+
+        notifyFromOtherNode("A|" + Instant.now().plusSeconds(600).getEpochSecond() + "|" + jti);
+
+        Assertions.assertTrue(eventually(() -> this.accessTokenRevocationService.isRevoked(jti)));
+    }
+
+    @Test
+    public void isRevoked_ShouldReturnTrue_WhenOtherNodeRevokedSession() {
+        String tokenHash = "%064x".formatted(UUID.randomUUID().getMostSignificantBits());
+        Assertions.assertFalse(this.sessionRevocationService.isRevoked(tokenHash));
+
+        notifyFromOtherNode("S|" + Instant.now().plusSeconds(600).getEpochSecond() + "|" + tokenHash);
+
+        Assertions.assertTrue(eventually(() -> this.sessionRevocationService.isRevoked(tokenHash)));
+    }
+
+    @Test
+    public void listen_ShouldUseConnectionOutsidePool() {
+        Assertions.assertTrue(eventually(() -> Boolean.TRUE.equals(this.jdbcTemplate.queryForObject("""
+                select exists(select 1 from pg_stat_activity
+                              where application_name = 'invalidation-bus-listener' and query ilike 'listen%')
+                """, Boolean.class))));
+    }
+
+    private void notifyFromOtherNode(String event) {
+        this.jdbcTemplate.queryForList("select pg_notify(?, ?)", InvalidationBus.CHANNEL, "other\n" + event);
+    }
+
+    private static boolean eventually(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            if (condition.getAsBoolean()) return true;
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return condition.getAsBoolean();
+    }
+}
@@ -0,0 +1,82 @@
+package ru.stroy1click.auth.integration;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import ru.stroy1click.auth.client.UserClient;
+import ru.stroy1click.auth.dto.UserDto;
+import ru.stroy1click.auth.model.AuthRequest;
+import ru.stroy1click.auth.model.JwtResponse;
+import ru.stroy1click.auth.model.Role;
+
+import static org.mockito.Mockito.when;
+
+@Import({TestcontainersConfiguration.class})
+@AutoConfigureObservability(tracing = false)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class MetricsTests {
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    @Value("${metrics-scraper.username}")
+    private String scraperUsername;
+
+    @Value("${metrics-scraper.password}")
+    private String scraperPassword;
+
+    @MockitoBean
+    private UserClient userClient;
+
+    @Test
+    public void prometheus_ShouldExposeAuthMetrics_WhenLoginCompleted() {
+        when(this.userClient.getByEmail("metrics_user@gmail.com")).thenReturn(new UserDto(1L, "Mike", "Thompson", "metrics_user@gmail.com", "{noop}password123", true, Role.ROLE_USER));
+        ResponseEntity<JwtResponse> login = this.testRestTemplate.exchange(
+                "/api/v1/auth/login",
+                HttpMethod.POST,
+                new HttpEntity<>(new AuthRequest("metrics_user@gmail.com", "password123")),
+                JwtResponse.class
+        );
+        Assertions.assertTrue(login.getStatusCode().is2xxSuccessful());
+
+        ResponseEntity<String> responseEntity = this.testRestTemplate
+                .withBasicAuth(this.scraperUsername, this.scraperPassword)
+                .getForEntity("/actuator/prometheus", String.class);
+
+        Assertions.assertTrue(responseEntity.getStatusCode().is2xxSuccessful());
+        String body = responseEntity.getBody();
+        Assertions.assertTrue(body.contains("http_server_requests_seconds_bucket{"));
+        Assertions.assertTrue(body.contains("uri=\"/api/v1/auth/login\""));
+        Assertions.assertTrue(body.contains("auth_jwt_sign_seconds_bucket{"));
+        Assertions.assertTrue(body.contains("auth_password_match_seconds_count{"));
+        Assertions.assertTrue(body.contains("hikaricp_connections_active{"));
+        Assertions.assertTrue(body.contains("resilience4j_circuitbreaker_state{"));
+        Assertions.assertTrue(body.contains("resilience4j_ratelimiter_available_permissions{"));
+    }
+
+    @Test
+    public void prometheus_ShouldReturnUnauthorized_WhenCredentialsMissing() {
+        ResponseEntity<String> responseEntity = this.testRestTemplate.getForEntity("/actuator/prometheus", String.class);
+
+        Assertions.assertEquals(HttpStatus.UNAUTHORIZED, responseEntity.getStatusCode());
+    }
+
+    @Test
+    public void prometheus_ShouldReturnUnauthorized_WhenPasswordIsWrong() {
+        ResponseEntity<String> responseEntity = this.testRestTemplate
+                .withBasicAuth(this.scraperUsername, "wrong-password")
+                .getForEntity("/actuator/prometheus", String.class);
+
+        Assertions.assertEquals(HttpStatus.UNAUTHORIZED, responseEntity.getStatusCode());
+    }
+}
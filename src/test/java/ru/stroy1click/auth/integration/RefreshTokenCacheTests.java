@@ -0,0 +1,98 @@
+package ru.stroy1click.auth.integration;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import ru.stroy1click.auth.client.UserClient;
+import ru.stroy1click.auth.entity.RefreshToken;
+import ru.stroy1click.auth.model.RefreshTokenRequest;
+import ru.stroy1click.auth.service.RefreshTokenService;
+
+import java.time.Instant;
+
+@Import({TestcontainersConfiguration.class})
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class RefreshTokenCacheTests {
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private UserClient userClient;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        this.statistics = this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        this.statistics.clear();
+    }
+
+    @Test
+    public void findByToken_ShouldNotQueryDatabase_WhenTokenIsCached() {
+        RefreshToken created = this.refreshTokenService.createRefreshToken("cache_user@gmail.com");
+        this.statistics.clear();
+
+        this.refreshTokenService.findByToken(created.getToken());
+        this.refreshTokenService.findByToken(created.getToken());
+
+        Assertions.assertEquals(0, this.statistics.getEntityLoadCount());
+        Assertions.assertEquals(0, this.statistics.getNaturalIdQueryExecutionCount());
+        Assertions.assertTrue(this.statistics.getSecondLevelCacheHitCount() > 0);
+    }
+
+    @Test
+    public void findByToken_ShouldReturnEmpty_WhenCachedTokenDeleted() {
+        RefreshToken created = this.refreshTokenService.createRefreshToken("cache_delete_user@gmail.com");
+        Assertions.assertTrue(this.refreshTokenService.findByToken(created.getToken()).isPresent());
+
+        this.refreshTokenService.delete(created.getToken());
+
+        Assertions.assertTrue(this.refreshTokenService.findByToken(created.getToken()).isEmpty());
+    }
+
+    @Test
+    public void findByToken_ShouldMissNaturalIdCache_WhenCachedTokenDeleted() {
+        RefreshToken created = this.refreshTokenService.createRefreshToken("cache_natural_id_user@gmail.com");
+        Assertions.assertTrue(this.refreshTokenService.findByToken(created.getToken()).isPresent());
+
+        this.refreshTokenService.delete(created.getToken());
+        this.statistics.clear();
+
+        Assertions.assertTrue(this.refreshTokenService.findByToken(created.getToken()).isEmpty());
+        Assertions.assertEquals(0, this.statistics.getNaturalIdCacheHitCount());
+    }
+
+    @Test
+    public void findByToken_ShouldMissNaturalIdCache_WhenAllUserTokensDeleted() {
+        RefreshToken created = this.refreshTokenService.createRefreshToken("cache_delete_all_user@gmail.com");
+        Assertions.assertTrue(this.refreshTokenService.findByToken(created.getToken()).isPresent());
+
+        this.refreshTokenService.deleteAll("cache_delete_all_user@gmail.com");
+        this.statistics.clear();
+
+        Assertions.assertTrue(this.refreshTokenService.findByToken(created.getToken()).isEmpty());
+        Assertions.assertEquals(0, this.statistics.getNaturalIdCacheHitCount());
+    }
+
+    @Test
+    public void findByToken_ShouldReturnNewExpiryDate_WhenCachedTokenExtended() {
+        RefreshToken created = this.refreshTokenService.createRefreshToken("cache_extend_user@gmail.com");
+        Instant expiryDate = this.refreshTokenService.findByToken(created.getToken()).orElseThrow().getExpiryDate();
+
+        this.refreshTokenService.extendTheExpirationDate(new RefreshTokenRequest(created.getToken()));
+
+        Instant extended = this.refreshTokenService.findByToken(created.getToken()).orElseThrow().getExpiryDate();
+        Assertions.assertTrue(extended.isAfter(expiryDate));
+    }
+}
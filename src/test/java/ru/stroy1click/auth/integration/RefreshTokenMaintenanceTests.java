@@ -0,0 +1,118 @@
+package ru.stroy1click.auth.integration;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import ru.stroy1click.auth.client.UserClient;
+import ru.stroy1click.auth.service.RefreshTokenMaintenanceService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Import({TestcontainersConfiguration.class})
+@SpringBootTest(properties = {
+        "refresh-token.maintenance.enabled=false",
+        "refresh-token.maintenance.partitions-ahead=3",
+        "refresh-token.maintenance.batch-size=2"
+})
+public class RefreshTokenMaintenanceTests {
+
+    private static final String EMAIL = "maintenance_user@gmail.com";
+
+    @Autowired
+    private RefreshTokenMaintenanceService refreshTokenMaintenanceService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private UserClient userClient;
+
+    @Test
+    public void createUpcomingPartitions_ShouldCreatePartitionsFromCurrentDatabaseMonth() {
+        this.refreshTokenMaintenanceService.createUpcomingPartitions();
+
+        List<String> expected = this.jdbcTemplate.queryForList("""
+                select 'refresh_tokens_p' || to_char(m, 'YYYY_MM')
+                from generate_series(date_trunc('month', localtimestamp),
+                                     date_trunc('month', localtimestamp) + interval '3 months',
+                                     interval '1 month') m
+                """, String.class);
+        Assertions.assertEquals(4, expected.size());
+        for (String partition : expected) {
+            Assertions.assertTrue(partitionExists(partition), partition);
+        }
+    }
+
+    @Test
+    public void createUpcomingPartitions_ShouldCreateKeysetIndexesOnNewPartitions() {
+        this.refreshTokenMaintenanceService.createUpcomingPartitions();
+
+        for (String index : List.of("refresh_tokens_user_email_expiry_date_id_idx", "refresh_tokens_expiry_date_id_idx")) {
+            Assertions.assertEquals(Boolean.TRUE, this.jdbcTemplate.queryForObject(
+                    "select indisvalid from pg_index where indexrelid = ('auth.' || ?)::regclass", Boolean.class, index), index);
+            Assertions.assertEquals(0, this.jdbcTemplate.queryForObject("""
+                    select count(*) from pg_inherits p
+                    where p.inhparent = 'auth.refresh_tokens'::regclass
+                      and not exists (select 1 from pg_inherits i
+                                      join pg_index x on x.indexrelid = i.inhrelid
+                                      where i.inhparent = ('auth.' || ?)::regclass and x.indrelid = p.inhrelid)
+                    """, Integer.class, index), index);
+        }
+    }
+
+    @Test
+    public void dropExpiredPartitions_ShouldDropOnlyPartitionsBeforeCurrentMonth() {
+        this.refreshTokenMaintenanceService.createUpcomingPartitions();
+        this.jdbcTemplate.execute("""
+                create table if not exists auth.refresh_tokens_p1999_01 partition of auth.refresh_tokens
+                for values from ('1999-01-01') to ('1999-02-01')
+                """);
+        this.jdbcTemplate.update("""
+                insert into auth.refresh_tokens (id, user_email, token_hash, expiry_date)
+                values (nextval('auth.refresh_tokens_id_seq'), ?, ?, '1999-01-15')
+                """, EMAIL, "p".repeat(64));
+
+        int dropped = this.refreshTokenMaintenanceService.dropExpiredPartitions();
+
+        Assertions.assertTrue(dropped >= 1);
+        Assertions.assertFalse(partitionExists("refresh_tokens_p1999_01"));
+        Assertions.assertTrue(partitionExists(this.jdbcTemplate.queryForObject(
+                "select 'refresh_tokens_p' || to_char(localtimestamp, 'YYYY_MM')", String.class)));
+        Assertions.assertTrue(partitionExists("refresh_tokens_default"));
+    }
+
+    @Test
+    public void deleteExpiredTokens_ShouldDeleteExpiredTokensInBatches() {
+        this.jdbcTemplate.update("delete from auth.refresh_tokens where user_email = ?", EMAIL);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            rows.add(new Object[]{EMAIL, "%063de".formatted(i)});
+        }
+        this.jdbcTemplate.batchUpdate("""
+                insert into auth.refresh_tokens (id, user_email, token_hash, expiry_date)
+                values (nextval('auth.refresh_tokens_id_seq'), ?, ?, '2001-01-01')
+                """, rows);
+        this.jdbcTemplate.update("""
+                insert into auth.refresh_tokens (id, user_email, token_hash, expiry_date)
+                values (nextval('auth.refresh_tokens_id_seq'), ?, ?, localtimestamp + interval '1 day')
+                """, EMAIL, "a".repeat(64));
+
+        int deleted = this.refreshTokenMaintenanceService.deleteExpiredTokens();
+
+        Assertions.assertTrue(deleted >= 5);
+        Assertions.assertEquals(0, this.jdbcTemplate.queryForObject(
+                "select count(*) from auth.refresh_tokens where expiry_date < localtimestamp", Integer.class));
+        Assertions.assertEquals(1, this.jdbcTemplate.queryForObject(
+                "select count(*) from auth.refresh_tokens where user_email = ?", Integer.class, EMAIL));
+    }
+
+    private boolean partitionExists(String partition) {
+        return Boolean.TRUE.equals(this.jdbcTemplate.queryForObject(
+                "select to_regclass('auth.' || ?) is not null", Boolean.class, partition));
+    }
+}
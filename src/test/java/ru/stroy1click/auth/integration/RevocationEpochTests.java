@@ -0,0 +1,137 @@
+package ru.stroy1click.auth.integration;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.*;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import ru.stroy1click.auth.client.UserClient;
+import ru.stroy1click.auth.dto.UserDto;
+import ru.stroy1click.auth.model.Role;
+import ru.stroy1click.auth.service.JwtService;
+import ru.stroy1click.auth.service.RevocationEpochService;
+
+import java.util.List;
+
+@Import({TestcontainersConfiguration.class})
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class RevocationEpochTests {
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private RevocationEpochService revocationEpochService;
+
+    @MockitoBean
+    private UserClient userClient;
+
+    @Test
+    public void revokeUsers_ShouldInvalidateOnlyListedUsersTokens() {
+        String revoked = token("epoch_revoked@gmail.com", Role.ROLE_USER);
+        String untouched = token("epoch_untouched@gmail.com", Role.ROLE_USER);
+
+        ResponseEntity<String> response = this.testRestTemplate.exchange("/api/v1/admin/revocations/users",
+                HttpMethod.POST, new HttpEntity<>(List.of("epoch_revoked@gmail.com"), bearer(token("epoch_admin@gmail.com", Role.ROLE_ADMIN))),
+                String.class);
+
+        Assertions.assertEquals(HttpStatus.OK, response.getStatusCode());
+        Assertions.assertEquals(HttpStatus.UNAUTHORIZED, validate(revoked));
+        Assertions.assertEquals(HttpStatus.OK, validate(untouched));
+    }
+
+    @Test
+    public void logoutOnAllDevices_ShouldInvalidateAccessTokens() {
+        String accessToken = token("epoch_logout@gmail.com", Role.ROLE_USER);
+
+        ResponseEntity<String> response = this.testRestTemplate.exchange(
+                "/api/v1/auth/logout-on-all-devices?email=epoch_logout@gmail.com",
+                HttpMethod.DELETE, new HttpEntity<>(bearer(accessToken)), String.class);
+
+        Assertions.assertEquals(HttpStatus.OK, response.getStatusCode());
+        Assertions.assertEquals(HttpStatus.UNAUTHORIZED, validate(accessToken));
+    }
+
+    @Test
+    public void logoutOnAllDevices_ShouldLogOutTokenOwner_WhenEmailOmitted() {
+        String accessToken = token("epoch_logout_self@gmail.com", Role.ROLE_USER);
+
+        ResponseEntity<String> response = this.testRestTemplate.exchange("/api/v1/auth/logout-on-all-devices",
+                HttpMethod.DELETE, new HttpEntity<>(bearer(accessToken)), String.class);
+
+        Assertions.assertEquals(HttpStatus.OK, response.getStatusCode());
+        Assertions.assertEquals(HttpStatus.UNAUTHORIZED, validate(accessToken));
+    }
+
+    @Test
+    public void logoutOnAllDevices_ShouldReturnForbidden_WhenUserLogsOutAnotherUser() {
+        String victim = token("epoch_logout_victim@gmail.com", Role.ROLE_USER);
+
+        ResponseEntity<String> response = this.testRestTemplate.exchange(
+                "/api/v1/auth/logout-on-all-devices?email=epoch_logout_victim@gmail.com",
+                HttpMethod.DELETE, new HttpEntity<>(bearer(token("epoch_logout_attacker@gmail.com", Role.ROLE_USER))),
+                String.class);
+
+        Assertions.assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+        Assertions.assertEquals(HttpStatus.OK, validate(victim));
+    }
+
+    @Test
+    public void logoutOnAllDevices_ShouldLogOutAnotherUser_WhenCalledByAdmin() {
+        String accessToken = token("epoch_logout_by_admin@gmail.com", Role.ROLE_USER);
+
+        ResponseEntity<String> response = this.testRestTemplate.exchange(
+                "/api/v1/auth/logout-on-all-devices?email=epoch_logout_by_admin@gmail.com",
+                HttpMethod.DELETE, new HttpEntity<>(bearer(token("epoch_admin@gmail.com", Role.ROLE_ADMIN))),
+                String.class);
+
+        Assertions.assertEquals(HttpStatus.OK, response.getStatusCode());
+        Assertions.assertEquals(HttpStatus.UNAUTHORIZED, validate(accessToken));
+    }
+
+    @Test
+    public void revokeRole_ShouldInvalidateTokensIssuedBeforeAndKeepLaterOnes() throws InterruptedException {
+        String before = token("epoch_role_admin@gmail.com", Role.ROLE_ADMIN);
+
+        this.revocationEpochService.revokeRole(Role.ROLE_ADMIN.name());
+        // граница отзыва округляется до следующей секунды
+        Thread.sleep(2000);
+        String after = token("epoch_role_admin@gmail.com", Role.ROLE_ADMIN);
+
+        Assertions.assertEquals(HttpStatus.UNAUTHORIZED, validate(before));
+        Assertions.assertEquals(HttpStatus.OK, validate(after));
+    }
+
+    @Test
+    public void revokeUsers_ShouldReturnBadRequest_WhenListIsEmpty() {
+        ResponseEntity<String> response = this.testRestTemplate.exchange("/api/v1/admin/revocations/users",
+                HttpMethod.POST, new HttpEntity<>(List.of(), bearer(token("epoch_admin@gmail.com", Role.ROLE_ADMIN))),
+                String.class);
+
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    private HttpStatusCode validate(String token) {
+        HttpHeaders headers = bearer(token);
+        headers.set("X-Original-Uri", "/api/v1/users/1");
+        headers.set("X-Original-Method", "POST");
+        return this.testRestTemplate.exchange("/api/v1/auth/validate", HttpMethod.GET,
+                new HttpEntity<>(headers), Void.class).getStatusCode();
+    }
+
+    private HttpHeaders bearer(String token) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        return headers;
+    }
+
+    private String token(String email, Role role) {
+        return this.jwtService.generate(new UserDto(1L, "Mike", "Thompson", email, "{noop}password123", true, role));
+    }
+}
@@ -0,0 +1,60 @@
+package ru.stroy1click.auth.integration;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import ru.stroy1click.auth.client.UserClient;
+import ru.stroy1click.auth.repository.RefreshTokenRepository;
+import ru.stroy1click.auth.service.RefreshTokenService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@Import({TestcontainersConfiguration.class})
+@SpringBootTest(properties = {
+        "refresh-token.session.max-active=6",
+        "refresh-token.session.limit-policy=EVICT_OLDEST"
+})
+public class SessionLimitTests {
+
+    private static final int PARALLEL_LOGINS = 64;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @MockitoBean
+    private UserClient userClient;
+
+    @Test
+    public void createRefreshToken_ShouldNeverExceedSessionLimit_WhenLoginsRunInParallel() throws Exception {
+        String email = "parallel_user@gmail.com";
+        ExecutorService executorService = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < PARALLEL_LOGINS; i++) {
+            futures.add(executorService.submit(() -> {
+                start.await();
+                return this.refreshTokenService.createRefreshToken(email);
+            }));
+        }
+        start.countDown();
+
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executorService.shutdown();
+
+        Assertions.assertEquals(6, this.refreshTokenRepository.countActiveByUserEmail(email));
+    }
+}
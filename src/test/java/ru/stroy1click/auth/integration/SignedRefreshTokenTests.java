@@ -0,0 +1,114 @@
+package ru.stroy1click.auth.integration;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.*;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import ru.stroy1click.auth.client.UserClient;
+import ru.stroy1click.auth.dto.UserDto;
+import ru.stroy1click.auth.model.AuthRequest;
+import ru.stroy1click.auth.model.JwtResponse;
+import ru.stroy1click.auth.model.RefreshTokenRequest;
+import ru.stroy1click.auth.model.Role;
+import ru.stroy1click.auth.service.RefreshTokenService;
+import ru.stroy1click.auth.service.SessionRevocationService;
+
+import static org.mockito.Mockito.when;
+
+@Import({TestcontainersConfiguration.class})
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "refresh-token.mode=SIGNED")
+public class SignedRefreshTokenTests {
+
+    private static final String EMAIL = "signed_user@gmail.com";
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private SessionRevocationService sessionRevocationService;
+
+    @MockitoBean
+    private UserClient userClient;
+
+    @BeforeEach
+    public void setUp() {
+        when(this.userClient.getByEmail(EMAIL)).thenReturn(new UserDto(2L, "Anna", "Signed", EMAIL, "{noop}password123", true, Role.ROLE_USER));
+    }
+
+    @Test
+    public void refreshAccessToken_ShouldReturnNewAccessToken_WhenSignedTokenIsValid() {
+        String refreshToken = login();
+
+        ResponseEntity<JwtResponse> responseEntity = refreshAccessToken(refreshToken, JwtResponse.class);
+
+        Assertions.assertEquals(3, refreshToken.split("\\.").length);
+        Assertions.assertTrue(responseEntity.getStatusCode().is2xxSuccessful());
+        Assertions.assertNotNull(responseEntity.getBody().getAccessToken());
+        Assertions.assertEquals(refreshToken, responseEntity.getBody().getRefreshToken());
+    }
+
+    @Test
+    public void refreshAccessToken_ShouldReturnNotFound_WhenSessionLoggedOut() {
+        String refreshToken = login();
+
+        Assertions.assertTrue(this.refreshTokenService.delete(refreshToken));
+
+        Assertions.assertEquals(HttpStatus.NOT_FOUND, refreshAccessToken(refreshToken, ProblemDetail.class).getStatusCode());
+    }
+
+    @Test
+    public void refreshAccessToken_ShouldReturnNotFound_WhenRevocationPolledAfterLogoutOnAllDevices() {
+        String refreshToken = login();
+
+        this.refreshTokenService.deleteAll(EMAIL);
+        this.sessionRevocationService.pollRevocations();
+
+        Assertions.assertEquals(HttpStatus.NOT_FOUND, refreshAccessToken(refreshToken, ProblemDetail.class).getStatusCode());
+    }
+
+    @Test
+    public void refreshAccessToken_ShouldReturnNotFound_WhenLoggedOutOnAllDevicesWithoutPolling() {
+        String refreshToken = login();
+
+        this.refreshTokenService.deleteAll(EMAIL);
+
+        Assertions.assertEquals(HttpStatus.NOT_FOUND, refreshAccessToken(refreshToken, ProblemDetail.class).getStatusCode());
+    }
+
+    @Test
+    public void refreshAccessToken_ShouldReturnValidationError_WhenTokenIsOpaque() {
+        ResponseEntity<ProblemDetail> responseEntity = refreshAccessToken("ba9a4691-ff6d-45eb-857f-1e39079ebd60", ProblemDetail.class);
+
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+        Assertions.assertTrue(responseEntity.getBody().getDetail().contains("Неверный формат токена"));
+    }
+
+    private String login() {
+        ResponseEntity<JwtResponse> responseEntity = this.testRestTemplate.exchange(
+                "/api/v1/auth/login",
+                HttpMethod.POST,
+                new HttpEntity<>(new AuthRequest(EMAIL, "password123")),
+                JwtResponse.class
+        );
+        Assertions.assertTrue(responseEntity.getStatusCode().is2xxSuccessful());
+        return responseEntity.getBody().getRefreshToken();
+    }
+
+    private <T> ResponseEntity<T> refreshAccessToken(String refreshToken, Class<T> responseType) {
+        return this.testRestTemplate.exchange(
+                "/api/v1/tokens/access",
+                HttpMethod.POST,
+                new HttpEntity<>(new RefreshTokenRequest(refreshToken)),
+                responseType
+        );
+    }
+}
@@ -0,0 +1,12 @@
+package ru.stroy1click.auth.integration;
+
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Прогоняет {@link TokenTests} на хранилище {@code tiered}.
+ */
+@Import({TestcontainersConfiguration.class})
+@TestPropertySource(properties = "refresh-token.store.type=tiered")
+public class TieredStoreTokenTests extends TokenTests {
+}
@@ -3,16 +3,24 @@ package ru.stroy1click.auth.integration;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.*;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.stroy1click.auth.client.UserClient;
 import ru.stroy1click.auth.dto.UserDto;
 import ru.stroy1click.auth.model.JwtResponse;
 import ru.stroy1click.auth.model.RefreshTokenRequest;
 import ru.stroy1click.auth.model.Role;
+import ru.stroy1click.auth.service.RefreshTokenService;
+import ru.stroy1click.auth.util.TokenDigestUtils;
+
+import java.time.Duration;
+import java.util.UUID;
 
 import static org.mockito.Mockito.when;
 
@@ -23,6 +31,15 @@ public class TokenTests {
     @Autowired
     private TestRestTemplate testRestTemplate;
 
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${refresh-token.extension.max-lifetime}")
+    private Duration maxLifetime;
+
     @MockitoBean
     private UserClient userClient;
 
@@ -31,7 +48,10 @@ public class TokenTests {
         String refreshToken = "ba9a4691-ff6d-45eb-857f-1e39079ebd60";
         HttpEntity<RefreshTokenRequest> httpEntity = new HttpEntity<>(new RefreshTokenRequest(refreshToken));
 
-        when(this.userClient.getByEmail("mike_thompson@gmail.com")).thenReturn(new UserDto(1L,"Mike", "Thompson", "mike_thompson@gmail.com", "{noop}password123", true, Role.ROLE_USER));
+        when(this.userClient.getByEmail("mike_thompson@gmail.com")).thenAnswer(invocation -> {
+            Assertions.assertFalse(TransactionSynchronizationManager.isActualTransactionActive());
+            return new UserDto(1L,"Mike", "Thompson", "mike_thompson@gmail.com", "{noop}password123", true, Role.ROLE_USER);
+        });
 
         ResponseEntity<JwtResponse> responseEntity = this.testRestTemplate.exchange(
                 "/api/v1/tokens/access",
@@ -47,7 +67,7 @@ public class TokenTests {
 
     @Test
     public void refreshToken_ShouldExtendTokenExpiration_WhenValidRefreshToken(){
-        String refreshToken = "40f2a44f-31ed-4593-97fe-ab775e309988";
+        String refreshToken = this.refreshTokenService.createRefreshToken("extend_user@gmail.com").getToken();
         HttpEntity<RefreshTokenRequest> httpEntity = new HttpEntity<>(new RefreshTokenRequest(refreshToken));
 
         ResponseEntity<String> responseEntity = this.testRestTemplate.exchange(
@@ -61,6 +81,86 @@ public class TokenTests {
         Assertions.assertEquals("Refresh Token продлён", responseEntity.getBody());
     }
 
+    @Test
+    public void refreshToken_ShouldReturnNotFound_WhenTokenExpired(){
+        String refreshToken = "40f2a44f-31ed-4593-97fe-ab775e309988";
+        HttpEntity<RefreshTokenRequest> httpEntity = new HttpEntity<>(new RefreshTokenRequest(refreshToken));
+
+        ResponseEntity<ProblemDetail> responseEntity = this.testRestTemplate.exchange(
+                "/api/v1/tokens/refresh-token",
+                HttpMethod.PATCH,
+                httpEntity,
+                ProblemDetail.class
+        );
+
+        Assertions.assertEquals(HttpStatus.NOT_FOUND, responseEntity.getStatusCode());
+        Assertions.assertEquals(0, this.jdbcTemplate.queryForObject(
+                "select count(*) from auth.refresh_tokens where token_hash = ? and expiry_date > localtimestamp",
+                Integer.class, TokenDigestUtils.digest(refreshToken)));
+    }
+
+    @Test
+    public void refreshToken_ShouldCapExpirationAtMaxLifetime_WhenSessionIssuedLongAgo(){
+        String refreshToken = UUID.randomUUID().toString();
+        String tokenHash = TokenDigestUtils.digest(refreshToken);
+        this.jdbcTemplate.update("""
+                insert into auth.refresh_tokens (id, user_email, token_hash, expiry_date, issued_at)
+                values (nextval('auth.refresh_tokens_id_seq'), ?, ?,
+                        localtimestamp + interval '1 day', localtimestamp - make_interval(secs => ?) + interval '2 days')
+                """, "lifetime_cap_user@gmail.com", tokenHash, this.maxLifetime.toSeconds());
+        HttpEntity<RefreshTokenRequest> httpEntity = new HttpEntity<>(new RefreshTokenRequest(refreshToken));
+
+        for (int i = 0; i < 2; i++) {
+            ResponseEntity<String> responseEntity = this.testRestTemplate.exchange(
+                    "/api/v1/tokens/refresh-token",
+                    HttpMethod.PATCH,
+                    httpEntity,
+                    String.class
+            );
+            Assertions.assertTrue(responseEntity.getStatusCode().is2xxSuccessful());
+        }
+
+        Assertions.assertEquals(Boolean.TRUE, this.jdbcTemplate.queryForObject("""
+                select expiry_date = issued_at + make_interval(secs => ?)
+                from auth.refresh_tokens where token_hash = ?
+                """, Boolean.class, this.maxLifetime.toSeconds(), tokenHash));
+    }
+
+    @Test
+    public void refreshToken_ShouldNotRecordRevokedSession_WhenExtensionMovesTokenToNextPartition(){
+        String refreshToken = UUID.randomUUID().toString();
+        String tokenHash = TokenDigestUtils.digest(refreshToken);
+        this.jdbcTemplate.update("""
+                insert into auth.refresh_tokens (id, user_email, token_hash, expiry_date, issued_at)
+                values (nextval('auth.refresh_tokens_id_seq'), ?, ?,
+                        date_trunc('month', localtimestamp) + interval '1 month' - interval '1 second',
+                        date_trunc('month', localtimestamp) + interval '1 month')
+                """, "partition_move_user@gmail.com", tokenHash);
+        HttpEntity<RefreshTokenRequest> httpEntity = new HttpEntity<>(new RefreshTokenRequest(refreshToken));
+
+        ResponseEntity<String> responseEntity = this.testRestTemplate.exchange(
+                "/api/v1/tokens/refresh-token",
+                HttpMethod.PATCH,
+                httpEntity,
+                String.class
+        );
+
+        Assertions.assertTrue(responseEntity.getStatusCode().is2xxSuccessful());
+        Assertions.assertEquals(0, this.jdbcTemplate.queryForObject(
+                "select count(*) from auth.revoked_sessions where token_hash = ?", Integer.class, tokenHash));
+    }
+
+    @Test
+    public void delete_ShouldNotRecordRevokedSession_WhenModeIsOpaque(){
+        String refreshToken = this.refreshTokenService.createRefreshToken("opaque_logout_user@gmail.com").getToken();
+
+        Assertions.assertTrue(this.refreshTokenService.delete(refreshToken));
+
+        Assertions.assertEquals(0, this.jdbcTemplate.queryForObject(
+                "select count(*) from auth.revoked_sessions where token_hash = ?",
+                Integer.class, TokenDigestUtils.digest(refreshToken)));
+    }
+
     @Test
     public void refreshAccessToken_ShouldReturnValidationError_WhenTokenIsBlank() {
         HttpEntity<RefreshTokenRequest> httpEntity = new HttpEntity<>(new RefreshTokenRequest(""));
@@ -0,0 +1,175 @@
+package ru.stroy1click.auth.integration;
+
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import ru.stroy1click.auth.client.UserClient;
+import ru.stroy1click.auth.dto.UserDto;
+import ru.stroy1click.auth.grpc.GrpcServer;
+import ru.stroy1click.auth.grpc.v1.*;
+import ru.stroy1click.auth.model.Role;
+import ru.stroy1click.auth.service.JwtService;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Сравнение пропускной способности REST {@code /validate} и gRPC. Не входит в обычный прогон:
+ * {@code mvn test -Dtest=ValidationBenchmarkTests -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Import({TestcontainersConfiguration.class})
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "resilience4j.ratelimiter.instances.authLimiter.limit-for-period=1000000000",
+        "spring.jpa.show-sql=false",
+        "logging.level.root=WARN"
+})
+class ValidationBenchmarkTests {
+
+    private static final int THREADS = 16;
+
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+
+    private static final Duration MEASUREMENT = Duration.ofSeconds(10);
+
+    private static final int BATCH_SIZE = 100;
+
+    private static final int STREAM_WINDOW = 256;
+
+    @LocalServerPort
+    private int httpPort;
+
+    @Autowired
+    private GrpcServer grpcServer;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @MockitoBean
+    private UserClient userClient;
+
+    @Test
+    public void compareRestAndGrpc() throws Exception {
+        String token = this.jwtService.generate(new UserDto(1L, "Mike", "Thompson",
+                "bench_user@gmail.com", "{noop}password123", true, Role.ROLE_USER));
+        ValidateRequest request = ValidateRequest.newBuilder()
+                .setToken(token)
+                .setOriginalMethod("POST")
+                .setOriginalUri("/api/v1/orders/1")
+                .build();
+
+        HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpRequest httpRequest = HttpRequest.newBuilder(URI.create("http://localhost:" + this.httpPort + "/api/v1/auth/validate"))
+                .header("Authorization", "Bearer " + token)
+                .header("X-Original-Uri", "/api/v1/orders/1")
+                .header("X-Original-Method", "POST")
+                .GET()
+                .build();
+
+        ManagedChannel channel = ManagedChannelBuilder.forAddress("localhost", this.grpcServer.getPort())
+                .usePlaintext()
+                .build();
+        TokenValidationGrpc.TokenValidationBlockingStub blockingStub = TokenValidationGrpc.newBlockingStub(channel);
+        ValidateBatchRequest.Builder batch = ValidateBatchRequest.newBuilder();
+        for (int i = 0; i < BATCH_SIZE; i++) batch.addRequests(request);
+        ValidateBatchRequest batchRequest = batch.build();
+
+        try {
+            report("REST HTTP/1.1", threaded(() -> {
+                HttpResponse<Void> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() != 200) throw new IllegalStateException("status " + response.statusCode());
+                return 1;
+            }));
+            report("gRPC unary", threaded(() -> {
+                if (!blockingStub.validate(request).getValid()) throw new IllegalStateException("invalid");
+                return 1;
+            }));
+            report("gRPC batch x" + BATCH_SIZE, threaded(() -> blockingStub.validateBatch(batchRequest).getResponsesCount()));
+            report("gRPC stream", stream(channel, request));
+        } finally {
+            channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private double threaded(Callable<Integer> call) throws Exception {
+        run(call, WARMUP);
+        return run(call, MEASUREMENT);
+    }
+
+    private double run(Callable<Integer> call, Duration duration) throws Exception {
+        AtomicLong validations = new AtomicLong();
+        long deadline = System.nanoTime() + duration.toNanos();
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    while (System.nanoTime() < deadline) validations.addAndGet(call.call());
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) future.get();
+        }
+        return validations.get() / (double) duration.toSeconds();
+    }
+
+    /**
+     * Один поток на канале, в полете не больше {@link #STREAM_WINDOW} запросов.
+     */
+    private double stream(ManagedChannel channel, ValidateRequest request) throws Exception {
+        streamFor(channel, request, WARMUP);
+        return streamFor(channel, request, MEASUREMENT) / (double) MEASUREMENT.toSeconds();
+    }
+
+    private long streamFor(ManagedChannel channel, ValidateRequest request, Duration duration) throws Exception {
+        Semaphore window = new Semaphore(STREAM_WINDOW);
+        AtomicLong validations = new AtomicLong();
+        CountDownLatch completed = new CountDownLatch(1);
+        StreamObserver<ValidateRequest> requests = TokenValidationGrpc.newStub(channel)
+                .validateStream(new StreamObserver<>() {
+
+                    @Override
+                    public void onNext(ValidateResponse response) {
+                        validations.incrementAndGet();
+                        window.release();
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        completed.countDown();
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        completed.countDown();
+                    }
+                });
+
+        long deadline = System.nanoTime() + duration.toNanos();
+        while (System.nanoTime() < deadline) {
+            window.acquire();
+            requests.onNext(request);
+        }
+        long measured = validations.get();
+        requests.onCompleted();
+        completed.await(10, TimeUnit.SECONDS);
+        return measured;
+    }
+
+    private void report(String name, double perSecond) {
+        System.out.printf("%-20s %,12.0f validations/s%n", name, perSecond);
+    }
+}
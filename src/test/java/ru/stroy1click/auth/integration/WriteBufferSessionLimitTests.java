@@ -0,0 +1,12 @@
+package ru.stroy1click.auth.integration;
+
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Прогоняет {@link SessionLimitTests} с включенным буфером записи.
+ */
+@Import({TestcontainersConfiguration.class})
+@TestPropertySource(properties = "refresh-token.write-buffer.enabled=true")
+public class WriteBufferSessionLimitTests extends SessionLimitTests {
+}
@@ -0,0 +1,56 @@
+package ru.stroy1click.auth.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import ru.stroy1click.auth.controller.AdviceController;
+import ru.stroy1click.auth.exception.NotFoundException;
+import ru.stroy1click.auth.exception.ServiceErrorResponseException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AdviceControllerTest {
+
+    private ResourceBundleMessageSource messageSource;
+
+    private AdviceController adviceController;
+
+    @BeforeEach
+    public void setUp() {
+        ResourceBundleMessageSource source = new ResourceBundleMessageSource();
+        source.setBasename("messages");
+        source.setDefaultEncoding("UTF-8");
+        this.messageSource = spy(source);
+        this.adviceController = new AdviceController(this.messageSource);
+    }
+
+    @Test
+    public void handleException_ShouldReturnInternalErrorTexts_WhenUserServiceFailed() {
+        // When
+        ProblemDetail problemDetail = this.adviceController.handleException(new ServiceErrorResponseException());
+
+        // Then
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR.value(), problemDetail.getStatus());
+        assertEquals("Ошибка на стороне сервиса", problemDetail.getTitle());
+        assertEquals("Произошла ошибка на стороне сервиса, пожалуйста, повторите попытку позже", problemDetail.getDetail());
+    }
+
+    @Test
+    public void handleException_ShouldNotResolveMessages_WhenHandlingError() {
+        // Given
+        clearInvocations(this.messageSource);
+        NotFoundException exception = new NotFoundException("Токен не найден");
+
+        // When
+        ProblemDetail problemDetail = this.adviceController.handleException(exception);
+
+        // Then
+        assertEquals("Не найдено", problemDetail.getTitle());
+        assertEquals("Токен не найден", problemDetail.getDetail());
+        assertEquals(0, exception.getStackTrace().length);
+        verifyNoInteractions(this.messageSource);
+    }
+}
@@ -1,22 +1,28 @@
 package ru.stroy1click.auth.unit;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.context.MessageSource;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import ru.stroy1click.auth.client.UserClient;
 import ru.stroy1click.auth.dto.UserDto;
+import ru.stroy1click.auth.idempotency.IdempotencyStore;
 import ru.stroy1click.auth.exception.NotFoundException;
 import ru.stroy1click.auth.exception.ValidationException;
 import ru.stroy1click.auth.model.AuthRequest;
 import ru.stroy1click.auth.model.RefreshTokenRequest;
 import ru.stroy1click.auth.service.JwtService;
 import ru.stroy1click.auth.service.RefreshTokenService;
+import ru.stroy1click.auth.service.RevocationEpochService;
 import ru.stroy1click.auth.service.impl.AuthServiceImpl;
 
+import java.util.List;
 import java.util.Locale;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -39,6 +45,15 @@ class AuthTest {
     @Mock
     private MessageSource messageSource;
 
+    @Mock
+    private RevocationEpochService revocationEpochService;
+
+    @Mock
+    private IdempotencyStore idempotencyStore;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @InjectMocks
     private AuthServiceImpl authService;
 
@@ -95,10 +110,21 @@ class AuthTest {
     @Test
     public void logout_ShouldDeleteRefreshToken_WhenCalled() {
         // When
-        this.authService.logout(refreshTokenRequest);
+        this.authService.logout(refreshTokenRequest, "access-token");
 
         // Then
         verify(this.refreshTokenService).delete(REFRESH_TOKEN);
+        verify(this.jwtService).revoke("access-token");
+    }
+
+    @Test
+    public void logoutOnAllDevices_ShouldDeleteRefreshTokensAndRevokeAccessTokens_WhenCalled() {
+        // When
+        this.authService.logoutOnAllDevices(TEST_EMAIL);
+
+        // Then
+        verify(this.refreshTokenService).deleteAll(TEST_EMAIL);
+        verify(this.revocationEpochService).revokeUsers(List.of(TEST_EMAIL));
     }
 
     @Test
@@ -112,6 +138,7 @@ class AuthTest {
 
         // Then
         assertEquals(userDto, result);
+        assertEquals(1, this.meterRegistry.get("auth.password.match").tag("outcome", "match").timer().count());
     }
 
     @Test
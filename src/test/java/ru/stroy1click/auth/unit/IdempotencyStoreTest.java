@@ -0,0 +1,128 @@
+package ru.stroy1click.auth.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.MessageSource;
+import ru.stroy1click.auth.exception.AlreadyExistsException;
+import ru.stroy1click.auth.exception.ServiceUnavailableException;
+import ru.stroy1click.auth.exception.ValidationException;
+import ru.stroy1click.auth.idempotency.IdempotencyStore;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.when;
+
+class IdempotencyStoreTest {
+
+    @Mock
+    private MessageSource messageSource;
+
+    private IdempotencyStore idempotencyStore;
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        this.idempotencyStore = new IdempotencyStore(this.messageSource, 100, Duration.ofMinutes(10), Duration.ofSeconds(5));
+    }
+
+    @Test
+    public void execute_ShouldRunActionOnce_WhenSameKeyRepeated() {
+        // When
+        String first = this.idempotencyStore.execute("key", "body", () -> "result-" + this.calls.incrementAndGet());
+        String second = this.idempotencyStore.execute("key", "body", () -> "result-" + this.calls.incrementAndGet());
+
+        // Then
+        assertEquals("result-1", first);
+        assertEquals("result-1", second);
+        assertEquals(1, this.calls.get());
+    }
+
+    @Test
+    public void execute_ShouldThrowValidationException_WhenKeyReusedWithOtherBody() {
+        // Given
+        when(this.messageSource.getMessage(eq("error.idempotency.key_reused"), any(), any())).thenReturn("reused");
+        this.idempotencyStore.execute("key", "body", this.calls::incrementAndGet);
+
+        // When
+        ValidationException exception = assertThrows(ValidationException.class,
+                () -> this.idempotencyStore.execute("key", "other body", this.calls::incrementAndGet));
+
+        // Then
+        assertEquals("reused", exception.getMessage());
+        assertEquals(1, this.calls.get());
+    }
+
+    @Test
+    public void execute_ShouldReplayException_WhenOutcomeIsFinal() {
+        // Given
+        assertThrows(AlreadyExistsException.class, () -> this.idempotencyStore.execute("key", "body", () -> {
+            this.calls.incrementAndGet();
+            throw new AlreadyExistsException("exists");
+        }));
+
+        // When
+        AlreadyExistsException exception = assertThrows(AlreadyExistsException.class,
+                () -> this.idempotencyStore.execute("key", "body", this.calls::incrementAndGet));
+
+        // Then
+        assertEquals("exists", exception.getMessage());
+        assertEquals(1, this.calls.get());
+    }
+
+    @Test
+    public void execute_ShouldRunAgain_WhenPreviousFailureWasTransient() {
+        // Given
+        assertThrows(ServiceUnavailableException.class, () -> this.idempotencyStore.execute("key", "body", () -> {
+            this.calls.incrementAndGet();
+            throw new ServiceUnavailableException();
+        }));
+
+        // When
+        Integer result = this.idempotencyStore.execute("key", "body", this.calls::incrementAndGet);
+
+        // Then
+        assertEquals(2, result);
+    }
+
+    @Test
+    public void execute_ShouldShareResult_WhenConcurrentCallersUseSameKey() throws Exception {
+        // Given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() ->
+                this.idempotencyStore.execute("key", "body", () -> {
+                    started.countDown();
+                    await(release);
+                    return this.calls.incrementAndGet();
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // When
+        CompletableFuture<Integer> second = CompletableFuture.supplyAsync(() ->
+                this.idempotencyStore.execute("key", "body", this.calls::incrementAndGet));
+        release.countDown();
+
+        // Then
+        assertEquals(1, first.get(5, TimeUnit.SECONDS));
+        assertEquals(1, second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, this.calls.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package ru.stroy1click.auth.unit;
+
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import ru.stroy1click.auth.dto.UserDto;
+import ru.stroy1click.auth.startup.LazyInitializationPostProcessor;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LazyInitializationPostProcessorTest {
+
+    private final LazyInitializationPostProcessor postProcessor =
+            new LazyInitializationPostProcessor(List.of("org.modelmapper"));
+
+    @Test
+    public void postProcessBeanFactory_ShouldMarkLazy_WhenBeanClassInConfiguredPackage() {
+        // Given
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("modelMapper", new RootBeanDefinition(ModelMapper.class));
+        beanFactory.registerBeanDefinition("userDto", new RootBeanDefinition(UserDto.class));
+
+        // When
+        this.postProcessor.postProcessBeanFactory(beanFactory);
+
+        // Then
+        assertTrue(beanFactory.getBeanDefinition("modelMapper").isLazyInit());
+        assertFalse(beanFactory.getBeanDefinition("userDto").isLazyInit());
+    }
+
+    @Test
+    public void postProcessBeanFactory_ShouldKeepEager_WhenLazyExplicitlyDisabled() {
+        // Given
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        RootBeanDefinition definition = new RootBeanDefinition(ModelMapper.class);
+        definition.setLazyInit(false);
+        beanFactory.registerBeanDefinition("modelMapper", definition);
+
+        // When
+        this.postProcessor.postProcessBeanFactory(beanFactory);
+
+        // Then
+        assertFalse(beanFactory.getBeanDefinition("modelMapper").isLazyInit());
+    }
+
+    @Test
+    public void postProcessBeanFactory_ShouldKeepEager_WhenInfrastructureBean() {
+        // Given
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        RootBeanDefinition definition = new RootBeanDefinition(ModelMapper.class);
+        definition.setRole(BeanDefinition.ROLE_INFRASTRUCTURE);
+        beanFactory.registerBeanDefinition("modelMapper", definition);
+
+        // When
+        this.postProcessor.postProcessBeanFactory(beanFactory);
+
+        // Then
+        assertFalse(beanFactory.getBeanDefinition("modelMapper").isLazyInit());
+    }
+}
@@ -0,0 +1,77 @@
+package ru.stroy1click.auth.unit;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.stroy1click.auth.logging.HotPathSamplingTurboFilter;
+import ru.stroy1click.auth.util.LogMaskUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoggingTest {
+
+    private final LoggerContext loggerContext = new LoggerContext();
+
+    private HotPathSamplingTurboFilter filter;
+
+    @BeforeEach
+    public void setUp() {
+        this.filter = new HotPathSamplingTurboFilter();
+        this.filter.addLoggerPrefix("ru.stroy1click.auth.service");
+        this.filter.setPermitsPerSecond(2);
+        this.filter.start();
+    }
+
+    @Test
+    public void token_ShouldHideTokenBody_WhenFormatted() {
+        // When
+        String masked = LogMaskUtils.token("ba9a4691-ff6d-45eb-857f-1e39079ebd60").toString();
+
+        // Then
+        assertEquals("ba9a***(36)", masked);
+    }
+
+    @Test
+    public void email_ShouldKeepOnlyFirstLetterAndDomain_WhenFormatted() {
+        // When
+        String masked = LogMaskUtils.email("mike_thompson@gmail.com").toString();
+
+        // Then
+        assertEquals("m***@gmail.com", masked);
+        assertEquals("null", LogMaskUtils.email(null).toString());
+    }
+
+    @Test
+    public void decide_ShouldDenyInfo_WhenCallSiteExceededPermits() {
+        // Given
+        Logger logger = this.loggerContext.getLogger("ru.stroy1click.auth.service.impl.RefreshTokenServiceImpl");
+
+        // When
+        int denied = 0;
+        for (int i = 0; i < 50; i++) {
+            if (this.filter.decide(null, logger, Level.INFO, "findByToken {}", null, null) == FilterReply.DENY) denied++;
+        }
+        FilterReply otherCallSite = this.filter.decide(null, logger, Level.INFO, "delete {}", null, null);
+        FilterReply warn = this.filter.decide(null, logger, Level.WARN, "findByToken {}", null, null);
+
+        // Then
+        assertTrue(denied >= 46);
+        assertEquals(denied, this.filter.getDropped());
+        assertEquals(FilterReply.NEUTRAL, otherCallSite);
+        assertEquals(FilterReply.NEUTRAL, warn);
+    }
+
+    @Test
+    public void decide_ShouldNotSample_WhenLoggerIsNotHotPath() {
+        // Given
+        Logger logger = this.loggerContext.getLogger("ru.stroy1click.auth.scheduler.SessionRevocationScheduler");
+
+        // When / Then
+        for (int i = 0; i < 5; i++) {
+            assertEquals(FilterReply.NEUTRAL, this.filter.decide(null, logger, Level.INFO, "poll {}", null, null));
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package ru.stroy1click.auth.unit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import ru.stroy1click.auth.entity.RefreshToken;
+import ru.stroy1click.auth.exception.ServiceUnavailableException;
+import ru.stroy1click.auth.store.RefreshTokenStore;
+import ru.stroy1click.auth.store.RefreshTokenWriteBuffer;
+import ru.stroy1click.auth.store.RefreshTokenWriter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RefreshTokenWriteBufferTest {
+
+    @Mock
+    private RefreshTokenWriter refreshTokenWriter;
+
+    @Mock
+    private RefreshTokenStore refreshTokenStore;
+
+    private RefreshTokenWriteBuffer refreshTokenWriteBuffer;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final CountDownLatch firstFlushStarted = new CountDownLatch(1);
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        // первая пачка ждет release, остальные записываются сразу
+        AtomicBoolean first = new AtomicBoolean(true);
+        when(this.refreshTokenWriter.write(anyList())).thenAnswer(invocation -> {
+            if (first.getAndSet(false)) {
+                this.firstFlushStarted.countDown();
+                this.release.await(10, TimeUnit.SECONDS);
+            }
+            List<RefreshToken> tokens = invocation.getArgument(0);
+            return tokens.stream().map(token -> new RefreshTokenWriter.WriteResult(token, null)).toList();
+        });
+
+        this.refreshTokenWriteBuffer = new RefreshTokenWriteBuffer(this.refreshTokenWriter, this.refreshTokenStore, 1,
+                Duration.ofMillis(1), 100, Duration.ofMillis(200));
+        this.refreshTokenWriteBuffer.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.release.countDown();
+        if (this.refreshTokenWriteBuffer.isRunning()) this.refreshTokenWriteBuffer.stop();
+    }
+
+    @Test
+    public void write_ShouldWriteDirectly_WhenQueuedWriteWaitsLongerThanTimeout() throws Exception {
+        // Given
+        CompletableFuture<RefreshToken> blocked = CompletableFuture.supplyAsync(() -> this.refreshTokenWriteBuffer.write(token()));
+        assertTrue(this.firstFlushStarted.await(5, TimeUnit.SECONDS));
+        RefreshToken queued = token();
+
+        // When
+        RefreshToken result = this.refreshTokenWriteBuffer.write(queued);
+
+        // Then
+        assertSame(queued, result);
+        verify(this.refreshTokenWriter).write(List.of(queued));
+        this.release.countDown();
+        assertNotNull(blocked.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void write_ShouldDeleteCommittedSession_WhenInFlightWriteTimedOut() {
+        // Given
+        RefreshToken refreshToken = token();
+
+        // When
+        assertThrows(ServiceUnavailableException.class, () -> this.refreshTokenWriteBuffer.write(refreshToken));
+        this.release.countDown();
+
+        // Then
+        verify(this.refreshTokenStore, timeout(5000)).deleteByTokenHash("hash");
+        verify(this.refreshTokenWriter, times(1)).write(anyList());
+    }
+
+    @Test
+    public void stop_ShouldCompleteQueuedWrites_WhenFlusherIsBusy() throws Exception {
+        // Given
+        CompletableFuture<RefreshToken> blocked = CompletableFuture.supplyAsync(() -> this.refreshTokenWriteBuffer.write(token()));
+        assertTrue(this.firstFlushStarted.await(5, TimeUnit.SECONDS));
+        List<CompletableFuture<RefreshToken>> queued = List.of(
+                CompletableFuture.supplyAsync(() -> this.refreshTokenWriteBuffer.write(token())),
+                CompletableFuture.supplyAsync(() -> this.refreshTokenWriteBuffer.write(token()))
+        );
+
+        // When
+        CompletableFuture<Void> stopped = CompletableFuture.runAsync(this.refreshTokenWriteBuffer::stop);
+        this.release.countDown();
+        stopped.get(10, TimeUnit.SECONDS);
+
+        // Then
+        assertNotNull(blocked.get(5, TimeUnit.SECONDS));
+        for (CompletableFuture<RefreshToken> future : queued) {
+            assertNotNull(future.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void write_ShouldWriteDirectly_WhenBufferStopped() {
+        // Given
+        this.release.countDown();
+        this.refreshTokenWriteBuffer.stop();
+        RefreshToken refreshToken = token();
+
+        // When
+        RefreshToken result = this.refreshTokenWriteBuffer.write(refreshToken);
+
+        // Then
+        assertSame(refreshToken, result);
+        verify(this.refreshTokenWriter).write(List.of(refreshToken));
+    }
+
+    private RefreshToken token() {
+        return RefreshToken.builder()
+                .userEmail(UUID.randomUUID() + "@example.com")
+                .tokenHash("hash")
+                .expiryDate(Instant.now().plusSeconds(600000))
+                .build();
+    }
+}
@@ -0,0 +1,156 @@
+package ru.stroy1click.auth.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.MessageSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.stroy1click.auth.entity.RefreshToken;
+import ru.stroy1click.auth.exception.ValidationException;
+import ru.stroy1click.auth.model.SessionLimitPolicy;
+import ru.stroy1click.auth.store.RefreshTokenStore;
+import ru.stroy1click.auth.store.RefreshTokenWriter;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RefreshTokenWriterTest {
+
+    @Mock
+    private RefreshTokenStore refreshTokenStore;
+
+    @Mock
+    private MessageSource messageSource;
+
+    @InjectMocks
+    private RefreshTokenWriter refreshTokenWriter;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        ReflectionTestUtils.setField(this.refreshTokenWriter, "maxActiveSessions", 6);
+        ReflectionTestUtils.setField(this.refreshTokenWriter, "sessionLimitPolicy", SessionLimitPolicy.REJECT);
+    }
+
+    @Test
+    public void write_ShouldSaveAllTokensInOneBatch_WhenSessionsLessThanLimit() {
+        // Given
+        when(this.refreshTokenStore.lockAndCountActiveSessions("a@example.com")).thenReturn(0L);
+        when(this.refreshTokenStore.lockAndCountActiveSessions("b@example.com")).thenReturn(5L);
+        List<RefreshToken> tokens = List.of(token("b@example.com"), token("a@example.com"), token("a@example.com"));
+
+        // When
+        List<RefreshTokenWriter.WriteResult> results = this.refreshTokenWriter.write(tokens);
+
+        // Then
+        assertEquals(3, results.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            assertSame(tokens.get(i), results.get(i).getOrThrow());
+        }
+        verify(this.refreshTokenStore).saveAll(argThat(saved -> saved.size() == 3));
+    }
+
+    @Test
+    public void write_ShouldRejectOverflow_WhenLimitReachedAndPolicyIsReject() {
+        // Given
+        when(this.refreshTokenStore.lockAndCountActiveSessions("test@example.com")).thenReturn(5L);
+        List<RefreshToken> tokens = List.of(token("test@example.com"), token("test@example.com"));
+
+        // When
+        List<RefreshTokenWriter.WriteResult> results = this.refreshTokenWriter.write(tokens);
+
+        // Then
+        assertSame(tokens.get(0), results.get(0).getOrThrow());
+        assertThrows(ValidationException.class, () -> results.get(1).getOrThrow());
+        verify(this.refreshTokenStore).saveAll(List.of(tokens.get(0)));
+        verify(this.refreshTokenStore, never()).evictOldestSessions(anyString(), anyLong());
+    }
+
+    @Test
+    public void write_ShouldNotSave_WhenUserHasMoreThanSixSessions() {
+        // Given
+        when(this.refreshTokenStore.lockAndCountActiveSessions("test@example.com")).thenReturn(7L);
+
+        // When
+        List<RefreshTokenWriter.WriteResult> results = this.refreshTokenWriter.write(List.of(token("test@example.com")));
+
+        // Then
+        assertThrows(ValidationException.class, () -> results.get(0).getOrThrow());
+        verify(this.refreshTokenStore, never()).saveAll(anyList());
+    }
+
+    @Test
+    public void write_ShouldEvictOldestSessions_WhenLimitReachedAndPolicyIsEvictOldest() {
+        // Given
+        ReflectionTestUtils.setField(this.refreshTokenWriter, "sessionLimitPolicy", SessionLimitPolicy.EVICT_OLDEST);
+        when(this.refreshTokenStore.lockAndCountActiveSessions("test@example.com")).thenReturn(6L);
+        List<RefreshToken> tokens = List.of(token("test@example.com"), token("test@example.com"));
+
+        // When
+        List<RefreshTokenWriter.WriteResult> results = this.refreshTokenWriter.write(tokens);
+
+        // Then
+        assertTrue(results.stream().allMatch(result -> result.error() == null));
+        verify(this.refreshTokenStore).evictOldestSessions("test@example.com", 2L);
+        verify(this.refreshTokenStore).saveAll(tokens);
+    }
+
+    @Test
+    public void write_ShouldKeepOnlyNewestTokens_WhenBatchExceedsLimitAndPolicyIsEvictOldest() {
+        // Given
+        ReflectionTestUtils.setField(this.refreshTokenWriter, "maxActiveSessions", 1);
+        ReflectionTestUtils.setField(this.refreshTokenWriter, "sessionLimitPolicy", SessionLimitPolicy.EVICT_OLDEST);
+        when(this.refreshTokenStore.lockAndCountActiveSessions("test@example.com")).thenReturn(1L);
+        List<RefreshToken> tokens = List.of(token("test@example.com"), token("test@example.com"));
+
+        // When
+        List<RefreshTokenWriter.WriteResult> results = this.refreshTokenWriter.write(tokens);
+
+        // Then
+        assertThrows(ValidationException.class, () -> results.get(0).getOrThrow());
+        assertSame(tokens.get(1), results.get(1).getOrThrow());
+        verify(this.refreshTokenStore).evictOldestSessions("test@example.com", 1L);
+        verify(this.refreshTokenStore).saveAll(List.of(tokens.get(1)));
+    }
+
+    @Test
+    public void write_ShouldReturnSuccessOnlyForSavedTokens_WhenBatchExceedsMaxActive() {
+        // Given
+        ReflectionTestUtils.setField(this.refreshTokenWriter, "sessionLimitPolicy", SessionLimitPolicy.EVICT_OLDEST);
+        when(this.refreshTokenStore.lockAndCountActiveSessions("test@example.com")).thenReturn(3L);
+        List<RefreshToken> tokens = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            tokens.add(token("test@example.com"));
+        }
+
+        // When
+        List<RefreshTokenWriter.WriteResult> results = this.refreshTokenWriter.write(tokens);
+
+        // Then
+        List<RefreshToken> saved = results.stream()
+                .filter(result -> result.error() == null)
+                .map(RefreshTokenWriter.WriteResult::refreshToken)
+                .toList();
+        assertEquals(6, saved.size());
+        assertEquals(tokens.subList(2, 8), saved);
+        assertTrue(results.subList(0, 2).stream().allMatch(result -> result.error() instanceof ValidationException));
+        verify(this.refreshTokenStore).evictOldestSessions("test@example.com", 3L);
+        verify(this.refreshTokenStore).saveAll(saved);
+    }
+
+    private RefreshToken token(String email) {
+        return RefreshToken.builder()
+                .userEmail(email)
+                .tokenHash("hash")
+                .expiryDate(Instant.now().plusSeconds(600000))
+                .build();
+    }
+}
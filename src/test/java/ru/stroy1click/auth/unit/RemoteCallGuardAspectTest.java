@@ -0,0 +1,72 @@
+package ru.stroy1click.auth.unit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.stroy1click.auth.aspect.RemoteCallGuardAspect;
+import ru.stroy1click.auth.client.UserClient;
+import ru.stroy1click.auth.dto.UserDto;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RemoteCallGuardAspectTest {
+
+    private final UserClient target = mock(UserClient.class);
+
+    @AfterEach
+    public void tearDown() {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    public void getByEmail_ShouldFail_WhenCalledInsideTransaction() {
+        // Given
+        UserClient userClient = guarded(true);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        // When
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> userClient.getByEmail("test@example.com"));
+
+        // Then
+        assertTrue(exception.getMessage().contains("getByEmail"));
+        verify(this.target, never()).getByEmail(anyString());
+    }
+
+    @Test
+    public void getByEmail_ShouldProceed_WhenCalledInsideTransactionAndFailDisabled() {
+        // Given
+        UserClient userClient = guarded(false);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        when(this.target.getByEmail("test@example.com")).thenReturn(new UserDto());
+
+        // When
+        UserDto result = userClient.getByEmail("test@example.com");
+
+        // Then
+        assertNotNull(result);
+    }
+
+    @Test
+    public void getByEmail_ShouldProceed_WhenNoTransaction() {
+        // Given
+        UserClient userClient = guarded(true);
+        when(this.target.getByEmail("test@example.com")).thenReturn(new UserDto());
+
+        // When
+        UserDto result = userClient.getByEmail("test@example.com");
+
+        // Then
+        assertNotNull(result);
+        verify(this.target).getByEmail("test@example.com");
+    }
+
+    private UserClient guarded(boolean failOnViolation) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(this.target);
+        factory.addInterface(UserClient.class);
+        factory.addAspect(new RemoteCallGuardAspect(failOnViolation));
+        return factory.getProxy();
+    }
+}
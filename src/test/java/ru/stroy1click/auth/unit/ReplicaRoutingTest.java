@@ -0,0 +1,208 @@
+package ru.stroy1click.auth.unit;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManager;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.SimpleNaturalIdLoadAccess;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.stroy1click.auth.datasource.ReplicaRoutingDataSource;
+import ru.stroy1click.auth.datasource.ReplicationLagGuard;
+import ru.stroy1click.auth.entity.RefreshToken;
+import ru.stroy1click.auth.invalidation.InvalidationBus;
+import ru.stroy1click.auth.invalidation.InvalidationEvent;
+import ru.stroy1click.auth.model.RefreshTokenMode;
+import ru.stroy1click.auth.repository.RefreshTokenRepository;
+import ru.stroy1click.auth.service.SessionRevocationService;
+import ru.stroy1click.auth.store.impl.JpaRefreshTokenStore;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ReplicaRoutingTest {
+
+    private ReplicaRoutingDataSource routingDataSource;
+
+    private ReplicationLagGuard replicationLagGuard;
+
+    private Session session;
+
+    private SimpleNaturalIdLoadAccess<RefreshToken> naturalIdLoadAccess;
+
+    private boolean readOnlyTransaction;
+
+    @BeforeEach
+    public void setUp() {
+        this.routingDataSource = new ReplicaRoutingDataSource(
+                mock(DataSource.class),
+                List.of(mock(HikariDataSource.class), mock(HikariDataSource.class))
+        );
+        this.replicationLagGuard = new ReplicationLagGuard(true, Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    public void determineCurrentLookupKey_ShouldReturnPrimary_WhenTransactionIsReadWrite() {
+        // When
+        Object key = lookupKey();
+
+        // Then
+        assertEquals("primary", key);
+    }
+
+    @Test
+    public void determineCurrentLookupKey_ShouldAlternateReplicas_WhenTransactionIsReadOnly() {
+        // Given
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // When
+        Object first = lookupKey();
+        Object second = lookupKey();
+        Object third = lookupKey();
+
+        // Then
+        assertEquals(0, first);
+        assertEquals(1, second);
+        assertEquals(0, third);
+    }
+
+    @Test
+    public void isRecentlyWritten_ShouldReturnTrue_WhenKeyWrittenWithinLagWindow() {
+        // When
+        this.replicationLagGuard.recordWrite("hash");
+
+        // Then
+        assertTrue(this.replicationLagGuard.isRecentlyWritten("hash"));
+        assertFalse(this.replicationLagGuard.isRecentlyWritten("other"));
+    }
+
+    @Test
+    public void isRecentlyWritten_ShouldReturnFalse_WhenRoutingDisabled() {
+        // Given
+        ReplicationLagGuard disabled = new ReplicationLagGuard(false, Duration.ofSeconds(5));
+
+        // When
+        disabled.recordWrite("hash");
+
+        // Then
+        assertFalse(disabled.isRecentlyWritten("hash"));
+    }
+
+    @Test
+    public void isRecentlyWritten_ShouldReturnTrue_WhenKeyInvalidatedByOtherNode() {
+        // When
+        this.replicationLagGuard.onInvalidation(List.of(
+                InvalidationEvent.of(InvalidationEvent.Type.NATURAL_ID, "hash"),
+                InvalidationEvent.of(InvalidationEvent.Type.USER, "test@example.com")
+        ));
+
+        // Then
+        assertTrue(this.replicationLagGuard.isRecentlyWritten("hash"));
+        assertTrue(this.replicationLagGuard.isRecentlyWritten("test@example.com"));
+    }
+
+    @Test
+    public void findByTokenHash_ShouldReadPrimary_WhenTokenDeletedByOtherNodeAndReplicaLags() {
+        // Given
+        JpaRefreshTokenStore store = jpaRefreshTokenStore();
+        // реплика еще отдает удаленную строку, на primary ее уже нет
+        when(this.naturalIdLoadAccess.loadOptional("hash")).thenAnswer(invocation ->
+                this.readOnlyTransaction ? Optional.of(refreshToken()) : Optional.empty());
+        this.replicationLagGuard.onInvalidation(List.of(
+                InvalidationEvent.of(InvalidationEvent.Type.ENTITY, "1"),
+                InvalidationEvent.of(InvalidationEvent.Type.NATURAL_ID, "hash")
+        ));
+
+        // When
+        Optional<RefreshToken> result = store.findByTokenHash("hash");
+
+        // Then
+        assertTrue(result.isEmpty());
+        verify(this.session).setCacheMode(CacheMode.REFRESH);
+        verify(this.session, never()).setCacheMode(CacheMode.GET);
+    }
+
+    @Test
+    public void findByTokenHash_ShouldReadPrimary_WhenUserSessionsDeletedByOtherNodeAndReplicaLags() {
+        // Given
+        JpaRefreshTokenStore store = jpaRefreshTokenStore();
+        when(this.naturalIdLoadAccess.loadOptional("hash")).thenAnswer(invocation ->
+                this.readOnlyTransaction ? Optional.of(refreshToken()) : Optional.empty());
+        this.replicationLagGuard.onInvalidation(List.of(
+                InvalidationEvent.of(InvalidationEvent.Type.USER, "test@example.com")
+        ));
+
+        // When
+        Optional<RefreshToken> result = store.findByTokenHash("hash");
+
+        // Then
+        assertTrue(result.isEmpty());
+        verify(this.session).setCacheMode(CacheMode.GET);
+        verify(this.session).setCacheMode(CacheMode.REFRESH);
+    }
+
+    @Test
+    public void findByTokenHash_ShouldNotPopulateCache_WhenReadFromReplica() {
+        // Given
+        JpaRefreshTokenStore store = jpaRefreshTokenStore();
+        when(this.naturalIdLoadAccess.loadOptional("hash")).thenAnswer(invocation -> Optional.of(refreshToken()));
+
+        // When
+        Optional<RefreshToken> result = store.findByTokenHash("hash");
+
+        // Then
+        assertTrue(result.isPresent());
+        verify(this.session).setCacheMode(CacheMode.GET);
+        verify(this.session, never()).setCacheMode(CacheMode.REFRESH);
+    }
+
+    @SuppressWarnings("unchecked")
+    private JpaRefreshTokenStore jpaRefreshTokenStore() {
+        EntityManager entityManager = mock(EntityManager.class);
+        this.session = mock(Session.class);
+        this.naturalIdLoadAccess = mock(SimpleNaturalIdLoadAccess.class);
+        when(entityManager.unwrap(Session.class)).thenReturn(this.session);
+        when(this.session.bySimpleNaturalId(RefreshToken.class)).thenReturn(this.naturalIdLoadAccess);
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            this.readOnlyTransaction = invocation.<TransactionDefinition>getArgument(0).isReadOnly();
+            return new SimpleTransactionStatus();
+        });
+
+        return new JpaRefreshTokenStore(mock(RefreshTokenRepository.class), entityManager,
+                this.replicationLagGuard, mock(InvalidationBus.class), mock(SessionRevocationService.class),
+                transactionManager, RefreshTokenMode.OPAQUE);
+    }
+
+    private RefreshToken refreshToken() {
+        return RefreshToken.builder()
+                .id(1)
+                .tokenHash("hash")
+                .userEmail("test@example.com")
+                .expiryDate(Instant.now().plusSeconds(600000))
+                .build();
+    }
+
+    private Object lookupKey() {
+        return ReflectionTestUtils.invokeMethod(this.routingDataSource, "determineCurrentLookupKey");
+    }
+}
@@ -0,0 +1,111 @@
+package ru.stroy1click.auth.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import ru.stroy1click.auth.invalidation.InvalidationBus;
+import ru.stroy1click.auth.model.RefreshTokenMode;
+import ru.stroy1click.auth.service.impl.AccessTokenRevocationServiceImpl;
+import ru.stroy1click.auth.service.impl.RevocationEpochServiceImpl;
+import ru.stroy1click.auth.service.impl.SessionRevocationServiceImpl;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RevocationLoadTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private InvalidationBus invalidationBus;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(this.jdbcTemplate.queryForObject("select localtimestamp", LocalDateTime.class)).thenReturn(LocalDateTime.now());
+    }
+
+    @Test
+    public void isRevoked_ShouldNotQueryDatabase_WhenAccessTokenChecked() {
+        // Given
+        AccessTokenRevocationServiceImpl service = new AccessTokenRevocationServiceImpl(this.jdbcTemplate,
+                this.invalidationBus, 100, 0.01, Duration.ofMinutes(1), "");
+
+        // When
+        boolean revoked = service.isRevoked("jti");
+
+        // Then
+        assertFalse(revoked);
+        verifyNoInteractions(this.jdbcTemplate);
+    }
+
+    @Test
+    public void afterSingletonsInstantiated_ShouldLoadDenylist_WhenContextStarted() {
+        // Given
+        AccessTokenRevocationServiceImpl service = new AccessTokenRevocationServiceImpl(this.jdbcTemplate,
+                this.invalidationBus, 100, 0.01, Duration.ofMinutes(1), "");
+
+        // When
+        service.afterSingletonsInstantiated();
+
+        // Then
+        verify(this.jdbcTemplate).query(contains("auth.revoked_access_tokens"), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    public void afterSingletonsInstantiated_ShouldSkipLoads_WhenTrainingRun() {
+        // Given
+        AccessTokenRevocationServiceImpl accessTokens = new AccessTokenRevocationServiceImpl(this.jdbcTemplate,
+                this.invalidationBus, 100, 0.01, Duration.ofMinutes(1), "onRefresh");
+        RevocationEpochServiceImpl epochs = new RevocationEpochServiceImpl(this.jdbcTemplate,
+                this.invalidationBus, Duration.ofMinutes(1), "onRefresh");
+        SessionRevocationServiceImpl sessions = new SessionRevocationServiceImpl(this.jdbcTemplate,
+                100, 0.01, Duration.ofMinutes(1), RefreshTokenMode.SIGNED, "onRefresh");
+
+        // When
+        accessTokens.afterSingletonsInstantiated();
+        epochs.afterSingletonsInstantiated();
+        sessions.afterSingletonsInstantiated();
+
+        // Then
+        verifyNoInteractions(this.jdbcTemplate);
+    }
+
+    @Test
+    public void isRevoked_ShouldNotQueryDatabase_WhenEpochChecked() {
+        // Given
+        RevocationEpochServiceImpl service = new RevocationEpochServiceImpl(this.jdbcTemplate,
+                this.invalidationBus, Duration.ofMinutes(1), "");
+
+        // When
+        boolean revoked = service.isRevoked("test@example.com", "ROLE_USER", Instant.now());
+
+        // Then
+        assertFalse(revoked);
+        verifyNoInteractions(this.jdbcTemplate);
+    }
+
+    @Test
+    public void afterSingletonsInstantiated_ShouldNotLoadSessions_WhenModeIsOpaque() {
+        // Given
+        SessionRevocationServiceImpl service = new SessionRevocationServiceImpl(this.jdbcTemplate,
+                100, 0.01, Duration.ofMinutes(1), RefreshTokenMode.OPAQUE, "");
+
+        // When
+        service.afterSingletonsInstantiated();
+        boolean revoked = service.isRevoked("hash");
+
+        // Then
+        assertFalse(revoked);
+        verifyNoInteractions(this.jdbcTemplate);
+    }
+}
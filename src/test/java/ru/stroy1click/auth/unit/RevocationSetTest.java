@@ -0,0 +1,58 @@
+package ru.stroy1click.auth.unit;
+
+import org.junit.jupiter.api.Test;
+import ru.stroy1click.auth.util.RevocationSet;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RevocationSetTest {
+
+    @Test
+    public void contains_ShouldReturnTrue_WhenKeyRevokedAndNotExpired() {
+        // Given
+        RevocationSet revocationSet = new RevocationSet(100, 0.01);
+
+        // When
+        revocationSet.add("jti-1", Instant.now().plusSeconds(60));
+
+        // Then
+        assertTrue(revocationSet.contains("jti-1"));
+        assertFalse(revocationSet.contains("jti-2"));
+    }
+
+    @Test
+    public void purgeExpired_ShouldRemoveKeys_WhenExpiryPassed() {
+        // Given
+        RevocationSet revocationSet = new RevocationSet(100, 0.01);
+        revocationSet.add("expired", Instant.now().minusSeconds(1));
+        revocationSet.add("active", Instant.now().plusSeconds(60));
+
+        // When
+        int purged = revocationSet.purgeExpired();
+
+        // Then
+        assertEquals(1, purged);
+        assertEquals(1, revocationSet.size());
+        assertFalse(revocationSet.contains("expired"));
+        assertTrue(revocationSet.contains("active"));
+    }
+
+    @Test
+    public void contains_ShouldKeepAllKeys_WhenInsertionsExceedExpected() {
+        // Given
+        RevocationSet revocationSet = new RevocationSet(10, 0.01);
+
+        // When
+        for (int i = 0; i < 1000; i++) {
+            revocationSet.add("jti-" + i, Instant.now().plusSeconds(60));
+        }
+        revocationSet.purgeExpired();
+
+        // Then
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(revocationSet.contains("jti-" + i));
+        }
+    }
+}
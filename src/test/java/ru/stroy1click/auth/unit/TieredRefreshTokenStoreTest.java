@@ -0,0 +1,207 @@
+package ru.stroy1click.auth.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import ru.stroy1click.auth.entity.RefreshToken;
+import ru.stroy1click.auth.invalidation.InvalidationBus;
+import ru.stroy1click.auth.invalidation.InvalidationEvent;
+import ru.stroy1click.auth.store.impl.JpaRefreshTokenStore;
+import ru.stroy1click.auth.store.impl.TieredRefreshTokenStore;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TieredRefreshTokenStoreTest {
+
+    @Mock
+    private JpaRefreshTokenStore delegate;
+
+    @Mock
+    private InvalidationBus invalidationBus;
+
+    private TieredRefreshTokenStore tieredRefreshTokenStore;
+
+    private RefreshToken refreshToken;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        this.tieredRefreshTokenStore = new TieredRefreshTokenStore(this.delegate, this.invalidationBus, 100, Duration.ofMinutes(1));
+
+        this.refreshToken = RefreshToken.builder()
+                .id(1)
+                .tokenHash("hash")
+                .userEmail("test@example.com")
+                .expiryDate(Instant.now().plusSeconds(600000))
+                .build();
+    }
+
+    @Test
+    public void findByTokenHash_ShouldServeFromMemory_WhenTokenWasSaved() {
+        // Given
+        when(this.delegate.save(this.refreshToken)).thenReturn(this.refreshToken);
+        this.tieredRefreshTokenStore.save(this.refreshToken);
+
+        // When
+        Optional<RefreshToken> result = this.tieredRefreshTokenStore.findByTokenHash("hash");
+
+        // Then
+        assertTrue(result.isPresent());
+        assertEquals("test@example.com", result.get().getUserEmail());
+        verify(this.delegate, never()).findByTokenHash("hash");
+    }
+
+    @Test
+    public void findByTokenHash_ShouldLoadOnce_WhenTokenNotCached() {
+        // Given
+        when(this.delegate.findByTokenHash("hash")).thenReturn(Optional.of(this.refreshToken));
+
+        // When
+        this.tieredRefreshTokenStore.findByTokenHash("hash");
+        this.tieredRefreshTokenStore.findByTokenHash("hash");
+
+        // Then
+        verify(this.delegate, times(1)).findByTokenHash("hash");
+    }
+
+    @Test
+    public void findByTokenHash_ShouldNotCache_WhenTokenExpired() {
+        // Given
+        this.refreshToken.setExpiryDate(Instant.now().minusSeconds(60));
+        when(this.delegate.findByTokenHash("hash")).thenReturn(Optional.of(this.refreshToken));
+
+        // When
+        this.tieredRefreshTokenStore.findByTokenHash("hash");
+        this.tieredRefreshTokenStore.findByTokenHash("hash");
+
+        // Then
+        verify(this.delegate, times(2)).findByTokenHash("hash");
+    }
+
+    @Test
+    public void deleteByTokenHash_ShouldInvalidateCachedToken_WhenCalled() {
+        // Given
+        when(this.delegate.findByTokenHash("hash")).thenReturn(Optional.of(this.refreshToken));
+        this.tieredRefreshTokenStore.findByTokenHash("hash");
+        when(this.delegate.deleteByTokenHash("hash")).thenReturn(true);
+        when(this.delegate.findByTokenHash("hash")).thenReturn(Optional.empty());
+
+        // When
+        boolean deleted = this.tieredRefreshTokenStore.deleteByTokenHash("hash");
+
+        // Then
+        assertTrue(deleted);
+        assertFalse(this.tieredRefreshTokenStore.findByTokenHash("hash").isPresent());
+    }
+
+    @Test
+    public void deleteAllByUserEmail_ShouldInvalidateAllUserTokens_WhenCalled() {
+        // Given
+        when(this.delegate.findByTokenHash("hash")).thenReturn(Optional.of(this.refreshToken));
+        this.tieredRefreshTokenStore.findByTokenHash("hash");
+        when(this.delegate.deleteAllByUserEmail("test@example.com")).thenReturn(1);
+        when(this.delegate.findByTokenHash("hash")).thenReturn(Optional.empty());
+
+        // When
+        int deleted = this.tieredRefreshTokenStore.deleteAllByUserEmail("test@example.com");
+
+        // Then
+        assertEquals(1, deleted);
+        assertFalse(this.tieredRefreshTokenStore.findByTokenHash("hash").isPresent());
+    }
+
+    @Test
+    public void deleteByTokenHash_ShouldPublishInvalidation_WhenTokenDeleted() {
+        // Given
+        when(this.delegate.deleteByTokenHash("hash")).thenReturn(true);
+
+        // When
+        this.tieredRefreshTokenStore.deleteByTokenHash("hash");
+
+        // Then
+        verify(this.invalidationBus).publish(InvalidationEvent.of(InvalidationEvent.Type.TOKEN, "hash"));
+    }
+
+    @Test
+    public void onInvalidation_ShouldDropCachedToken_WhenRemoteNodeInvalidatedUser() {
+        // Given
+        when(this.delegate.save(this.refreshToken)).thenReturn(this.refreshToken);
+        when(this.delegate.findByTokenHash("hash")).thenReturn(Optional.empty());
+        this.tieredRefreshTokenStore.save(this.refreshToken);
+
+        // When
+        this.tieredRefreshTokenStore.onInvalidation(
+                List.of(InvalidationEvent.of(InvalidationEvent.Type.USER, "test@example.com"))
+        );
+
+        // Then
+        assertTrue(this.tieredRefreshTokenStore.findByTokenHash("hash").isEmpty());
+        verify(this.invalidationBus, never()).publish(any());
+    }
+
+    @Test
+    public void findByTokenHash_ShouldNotCache_WhenTokenInvalidatedDuringLoad() {
+        // Given
+        when(this.delegate.findByTokenHash("hash")).thenAnswer(invocation -> {
+            this.tieredRefreshTokenStore.onInvalidation(
+                    List.of(InvalidationEvent.of(InvalidationEvent.Type.TOKEN, "hash"))
+            );
+            return Optional.of(this.refreshToken);
+        });
+
+        // When
+        this.tieredRefreshTokenStore.findByTokenHash("hash");
+        this.tieredRefreshTokenStore.findByTokenHash("hash");
+
+        // Then
+        verify(this.delegate, times(2)).findByTokenHash("hash");
+    }
+
+    @Test
+    public void findByTokenHash_ShouldNotCache_WhenUserInvalidatedDuringLoad() {
+        // Given
+        when(this.delegate.findByTokenHash("hash")).thenAnswer(invocation -> {
+            this.tieredRefreshTokenStore.onInvalidation(
+                    List.of(InvalidationEvent.of(InvalidationEvent.Type.USER, "test@example.com"))
+            );
+            return Optional.of(this.refreshToken);
+        });
+
+        // When
+        this.tieredRefreshTokenStore.findByTokenHash("hash");
+        this.tieredRefreshTokenStore.findByTokenHash("hash");
+
+        // Then
+        verify(this.delegate, times(2)).findByTokenHash("hash");
+    }
+
+    @Test
+    public void deleteAllByUserEmail_ShouldKeepOtherUsersTokens_WhenCalled() {
+        // Given
+        RefreshToken otherToken = RefreshToken.builder()
+                .id(2)
+                .tokenHash("other-hash")
+                .userEmail("other@example.com")
+                .expiryDate(Instant.now().plusSeconds(600000))
+                .build();
+        when(this.delegate.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        this.tieredRefreshTokenStore.saveAll(List.of(this.refreshToken, otherToken));
+        when(this.delegate.findByTokenHash("hash")).thenReturn(Optional.empty());
+
+        // When
+        this.tieredRefreshTokenStore.deleteAllByUserEmail("test@example.com");
+
+        // Then
+        assertTrue(this.tieredRefreshTokenStore.findByTokenHash("hash").isEmpty());
+        assertTrue(this.tieredRefreshTokenStore.findByTokenHash("other-hash").isPresent());
+        verify(this.delegate, never()).findByTokenHash("other-hash");
+    }
+}
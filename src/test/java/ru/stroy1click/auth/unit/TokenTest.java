@@ -5,19 +5,29 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.MessageSource;
+import org.springframework.test.util.ReflectionTestUtils;
 import ru.stroy1click.auth.client.UserClient;
 import ru.stroy1click.auth.dto.UserDto;
 import ru.stroy1click.auth.exception.NotFoundException;
 import ru.stroy1click.auth.exception.ValidationException;
 import ru.stroy1click.auth.model.JwtResponse;
 import ru.stroy1click.auth.entity.RefreshToken;
+import ru.stroy1click.auth.model.RefreshTokenClaims;
+import ru.stroy1click.auth.model.RefreshTokenMode;
 import ru.stroy1click.auth.model.RefreshTokenRequest;
-import ru.stroy1click.auth.repository.RefreshTokenRepository;
 import ru.stroy1click.auth.service.JwtService;
+import ru.stroy1click.auth.service.SessionRevocationService;
 import ru.stroy1click.auth.service.impl.RefreshTokenServiceImpl;
+import ru.stroy1click.auth.store.RefreshTokenStore;
+import ru.stroy1click.auth.store.RefreshTokenWriteBuffer;
+import ru.stroy1click.auth.store.RefreshTokenWriter;
+import ru.stroy1click.auth.util.TokenDigestUtils;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
 
@@ -27,7 +37,7 @@ import static org.mockito.Mockito.*;
 class TokenTest {
 
     @Mock
-    private RefreshTokenRepository refreshTokenRepository;
+    private RefreshTokenStore refreshTokenStore;
 
     @Mock
     private UserClient userClient;
@@ -38,6 +48,15 @@ class TokenTest {
     @Mock
     private JwtService jwtService;
 
+    @Mock
+    private RefreshTokenWriter refreshTokenWriter;
+
+    @Mock
+    private ObjectProvider<RefreshTokenWriteBuffer> refreshTokenWriteBuffer;
+
+    @Mock
+    private SessionRevocationService sessionRevocationService;
+
     @InjectMocks
     private RefreshTokenServiceImpl refreshTokenService;
 
@@ -60,45 +79,60 @@ class TokenTest {
 
         this.refreshTokenRequest = new RefreshTokenRequest();
         this.refreshTokenRequest.setRefreshToken("test-token");
+
+        ReflectionTestUtils.setField(this.refreshTokenService, "mode", RefreshTokenMode.OPAQUE);
+        ReflectionTestUtils.setField(this.refreshTokenService, "extensionStep", Duration.ofDays(7));
+        ReflectionTestUtils.setField(this.refreshTokenService, "maxLifetime", Duration.ofDays(30));
     }
 
     @Test
-    public void createRefreshToken_ShouldCreateToken_WhenUserExistsAndSessionsLessThanSix() {
+    public void createRefreshToken_ShouldCreateToken_WhenWriterAcceptsToken() {
         // Given
-        when(this.refreshTokenRepository.countByUserEmail("test@example.com")).thenReturn(5);
-        
-        RefreshToken savedToken = RefreshToken.builder()
-                .userEmail("test@example.com")
-                .token("test-token")
-                .expiryDate(Instant.now().plusSeconds(600000))
-                .build();
-        
-        when(this.refreshTokenRepository.save(any(RefreshToken.class))).thenReturn(savedToken);
+        when(this.refreshTokenWriter.write(anyList())).thenAnswer(invocation -> {
+            List<RefreshToken> tokens = invocation.getArgument(0);
+            return List.of(new RefreshTokenWriter.WriteResult(tokens.get(0), null));
+        });
 
         // When
         RefreshToken result = this.refreshTokenService.createRefreshToken("test@example.com");
 
         // Then
-        assertNotNull(result);
+        assertNotNull(result.getToken());
         assertEquals(this.userDto.getEmail(), result.getUserEmail());
-        verify(this.refreshTokenRepository).countByUserEmail("test@example.com");
-        verify(this.refreshTokenRepository).save(any(RefreshToken.class));
+        assertEquals(TokenDigestUtils.digest(result.getToken()), result.getTokenHash());
+        verify(this.refreshTokenWriter).write(anyList());
     }
 
     @Test
-    public void createRefreshToken_ShouldThrowValidationException_WhenUserHasMoreThanSixSessions() {
+    public void createRefreshToken_ShouldThrowValidationException_WhenWriterRejectsToken() {
         // Given
-        when(this.refreshTokenRepository.countByUserEmail("test@example.com")).thenReturn(7);
+        when(this.refreshTokenWriter.write(anyList()))
+                .thenReturn(List.of(new RefreshTokenWriter.WriteResult(null, new ValidationException("max session"))));
 
         // When & Then
         assertThrows(ValidationException.class, () -> this.refreshTokenService.createRefreshToken("test@example.com"));
-        verify(this.refreshTokenRepository).countByUserEmail("test@example.com");
+    }
+
+    @Test
+    public void createRefreshToken_ShouldUseWriteBuffer_WhenBufferIsEnabled() {
+        // Given
+        RefreshTokenWriteBuffer writeBuffer = mock(RefreshTokenWriteBuffer.class);
+        when(this.refreshTokenWriteBuffer.getIfAvailable()).thenReturn(writeBuffer);
+        when(writeBuffer.write(any(RefreshToken.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        RefreshToken result = this.refreshTokenService.createRefreshToken("test@example.com");
+
+        // Then
+        assertNotNull(result.getToken());
+        verify(writeBuffer).write(any(RefreshToken.class));
+        verify(this.refreshTokenWriter, never()).write(anyList());
     }
 
     @Test
     public void findByToken_ShouldReturnToken_WhenTokenExists() {
         // Given
-        when(this.refreshTokenRepository.findFirstByToken("test-token")).thenReturn(Optional.of(refreshToken));
+        when(this.refreshTokenStore.findByTokenHash(TokenDigestUtils.digest("test-token"))).thenReturn(Optional.of(refreshToken));
 
         // When
         Optional<RefreshToken> result = this.refreshTokenService.findByToken("test-token");
@@ -106,55 +140,72 @@ class TokenTest {
         // Then
         assertTrue(result.isPresent());
         assertEquals(refreshToken, result.get());
-        verify(this.refreshTokenRepository).findFirstByToken("test-token");
+        verify(this.refreshTokenStore).findByTokenHash(TokenDigestUtils.digest("test-token"));
     }
 
     @Test
     public void findByToken_ShouldReturnEmptyOptional_WhenTokenNotExists() {
         // Given
         String token = "nonexistent-token";
-        when(this.refreshTokenRepository.findFirstByToken(token)).thenReturn(Optional.empty());
+        when(this.refreshTokenStore.findByTokenHash(TokenDigestUtils.digest(token))).thenReturn(Optional.empty());
 
         // When
         Optional<RefreshToken> result = this.refreshTokenService.findByToken(token);
 
         // Then
         assertFalse(result.isPresent());
-        verify(this.refreshTokenRepository).findFirstByToken(token);
+        verify(this.refreshTokenStore).findByTokenHash(TokenDigestUtils.digest(token));
     }
 
     @Test
     public void delete_ShouldDeleteTokenByTokenString_WhenCalled() {
+        // Given
+        when(this.refreshTokenStore.deleteByTokenHash(TokenDigestUtils.digest("test-token"))).thenReturn(true);
+
         // When
-        this.refreshTokenService.delete("test-token");
+        boolean deleted = this.refreshTokenService.delete("test-token");
 
         // Then
-        verify(this.refreshTokenRepository).deleteByToken("test-token");
+        assertTrue(deleted);
+        verify(this.refreshTokenStore).deleteByTokenHash(TokenDigestUtils.digest("test-token"));
+    }
+
+    @Test
+    public void delete_ShouldReturnFalse_WhenTokenNotExists() {
+        // Given
+        when(this.refreshTokenStore.deleteByTokenHash(TokenDigestUtils.digest("nonexistent-token"))).thenReturn(false);
+
+        // When & Then
+        assertFalse(this.refreshTokenService.delete("nonexistent-token"));
     }
 
     @Test
     public void deleteAll_ShouldDeleteAllTokensForUser_WhenCalled() {
+        // Given
+        when(this.refreshTokenStore.deleteAllByUserEmail("test@example.com")).thenReturn(3);
+
         // When
-        this.refreshTokenService.deleteAll("test@example.com");
+        int deleted = this.refreshTokenService.deleteAll("test@example.com");
 
         // Then
-        verify(this.refreshTokenRepository).deleteAllByUserEmail("test@example.com");
+        assertEquals(3, deleted);
+        verify(this.refreshTokenStore).deleteAllByUserEmail("test@example.com");
     }
 
     @Test
     public void extendTheExpirationDate_ShouldExtendExpiration_WhenTokenExists() {
         // Given
-        Instant oldExpiryDate = Instant.now();
-        refreshToken.setExpiryDate(oldExpiryDate);
-        when(this.refreshTokenRepository.findFirstByToken("test-token")).thenReturn(Optional.of(refreshToken));
+        String tokenHash = TokenDigestUtils.digest("test-token");
+        when(this.refreshTokenStore.extend(tokenHash, Duration.ofDays(7), Duration.ofDays(30)))
+                .thenReturn(true);
 
         // When
         this.refreshTokenService.extendTheExpirationDate(refreshTokenRequest);
 
         // Then
-        verify(this.refreshTokenRepository).findFirstByToken("test-token");
-        verify(this.refreshTokenRepository).save(refreshToken);
-        assertTrue(refreshToken.getExpiryDate().isAfter(oldExpiryDate));
+        verify(this.refreshTokenStore).extend(tokenHash, Duration.ofDays(7), Duration.ofDays(30));
+        verify(this.refreshTokenStore, never()).findByTokenHash(any());
+        verify(this.refreshTokenStore, never()).save(any(RefreshToken.class));
     }
 
     @Test
@@ -163,19 +214,20 @@ class TokenTest {
         RefreshTokenRequest request = new RefreshTokenRequest();
         request.setRefreshToken("nonexistent-token");
 
-        when(this.refreshTokenRepository.findFirstByToken("nonexistent-token")).thenReturn(Optional.empty());
+        when(this.refreshTokenStore.extend(eq(TokenDigestUtils.digest("nonexistent-token")), any(Duration.class), any(Duration.class)))
+                .thenReturn(false);
         when(this.messageSource.getMessage("error.refresh.token.not_found", null, Locale.getDefault()))
                 .thenReturn("Refresh token not found");
 
         // When & Then
         assertThrows(NotFoundException.class, () -> this.refreshTokenService.extendTheExpirationDate(request));
-        verify(this.refreshTokenRepository).findFirstByToken("nonexistent-token");
+        verify(this.refreshTokenStore).extend(eq(TokenDigestUtils.digest("nonexistent-token")), any(Duration.class), any(Duration.class));
     }
 
     @Test
     public void refreshAccessToken_ShouldReturnJwtResponse_WhenTokenExistsAndNotExpired() {
         // Given
-        when(this.refreshTokenRepository.findFirstByToken("test-token")).thenReturn(Optional.of(refreshToken));
+        when(this.refreshTokenStore.findByTokenHash(TokenDigestUtils.digest("test-token"))).thenReturn(Optional.of(refreshToken));
         when(this.jwtService.generate(userDto)).thenReturn("new access token");
         when(this.userClient.getByEmail(refreshToken.getUserEmail())).thenReturn(this.userDto);
 
@@ -186,7 +238,7 @@ class TokenTest {
         assertNotNull(result);
         assertEquals("new access token", result.getAccessToken());
         assertEquals("test-token", result.getRefreshToken());
-        verify(this.refreshTokenRepository).findFirstByToken("test-token");
+        verify(this.refreshTokenStore).findByTokenHash(TokenDigestUtils.digest("test-token"));
         verify(this.jwtService).generate(userDto);
     }
 
@@ -196,13 +248,13 @@ class TokenTest {
         RefreshTokenRequest request = new RefreshTokenRequest();
         request.setRefreshToken("nonexistent-token");
 
-        when(this.refreshTokenRepository.findFirstByToken("nonexistent-token")).thenReturn(Optional.empty());
+        when(this.refreshTokenStore.findByTokenHash(TokenDigestUtils.digest("nonexistent-token"))).thenReturn(Optional.empty());
         when(this.messageSource.getMessage("error.refresh.token.not_found", null, Locale.getDefault()))
                 .thenReturn("Refresh token not found");
 
         // When & Then
         assertThrows(NotFoundException.class, () -> this.refreshTokenService.refreshAccessToken(request));
-        verify(this.refreshTokenRepository).findFirstByToken("nonexistent-token");
+        verify(this.refreshTokenStore).findByTokenHash(TokenDigestUtils.digest("nonexistent-token"));
     }
 
     @Test
@@ -217,12 +269,61 @@ class TokenTest {
         RefreshTokenRequest expiredRequest = new RefreshTokenRequest();
         expiredRequest.setRefreshToken(expiredToken);
 
-        when(this.refreshTokenRepository.findFirstByToken(expiredToken)).thenReturn(Optional.of(expiredRefreshToken));
+        when(this.refreshTokenStore.findByTokenHash(TokenDigestUtils.digest(expiredToken))).thenReturn(Optional.of(expiredRefreshToken));
         when(this.messageSource.getMessage("error.refresh.token.expired", null, Locale.getDefault()))
                 .thenReturn("Refresh token expired");
 
         // When & Then
         assertThrows(ValidationException.class, () -> this.refreshTokenService.refreshAccessToken(expiredRequest));
-        verify(this.refreshTokenRepository).findFirstByToken(expiredToken);
+        verify(this.refreshTokenStore).findByTokenHash(TokenDigestUtils.digest(expiredToken));
+    }
+
+    @Test
+    public void refreshAccessToken_ShouldNotQueryStore_WhenSignedTokenIsValid() {
+        // Given
+        ReflectionTestUtils.setField(this.refreshTokenService, "mode", RefreshTokenMode.SIGNED);
+        RefreshTokenClaims claims = new RefreshTokenClaims("session-id", "test@example.com", Instant.now().plusSeconds(600));
+        when(this.jwtService.parseRefreshToken("signed-token")).thenReturn(Optional.of(claims));
+        when(this.userClient.getByEmail("test@example.com")).thenReturn(this.userDto);
+        when(this.jwtService.generate(this.userDto)).thenReturn("new access token");
+
+        // When
+        JwtResponse result = this.refreshTokenService.refreshAccessToken(new RefreshTokenRequest("signed-token"));
+
+        // Then
+        assertEquals("new access token", result.getAccessToken());
+        verify(this.sessionRevocationService).isRevoked(TokenDigestUtils.digest("session-id"));
+        verifyNoInteractions(this.refreshTokenStore);
+    }
+
+    @Test
+    public void refreshAccessToken_ShouldThrowNotFoundException_WhenSignedTokenIsRevoked() {
+        // Given
+        ReflectionTestUtils.setField(this.refreshTokenService, "mode", RefreshTokenMode.SIGNED);
+        RefreshTokenClaims claims = new RefreshTokenClaims("session-id", "test@example.com", Instant.now().plusSeconds(600));
+        when(this.jwtService.parseRefreshToken("signed-token")).thenReturn(Optional.of(claims));
+        when(this.sessionRevocationService.isRevoked(TokenDigestUtils.digest("session-id"))).thenReturn(true);
+
+        // When & Then
+        assertThrows(NotFoundException.class,
+                () -> this.refreshTokenService.refreshAccessToken(new RefreshTokenRequest("signed-token")));
+        verifyNoInteractions(this.userClient);
+    }
+
+    @Test
+    public void delete_ShouldRevokeSession_WhenSignedTokenIsValid() {
+        // Given
+        ReflectionTestUtils.setField(this.refreshTokenService, "mode", RefreshTokenMode.SIGNED);
+        Instant expiry = Instant.now().plusSeconds(600);
+        when(this.jwtService.parseRefreshToken("signed-token"))
+                .thenReturn(Optional.of(new RefreshTokenClaims("session-id", "test@example.com", expiry)));
+        when(this.refreshTokenStore.deleteByTokenHash(TokenDigestUtils.digest("session-id"))).thenReturn(true);
+
+        // When
+        boolean deleted = this.refreshTokenService.delete("signed-token");
+
+        // Then
+        assertTrue(deleted);
+        verify(this.sessionRevocationService).revoke(TokenDigestUtils.digest("session-id"), expiry);
     }
 }
@@ -0,0 +1,152 @@
+package ru.stroy1click.auth.unit;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.stroy1click.auth.tracing.EndpointSampler;
+import ru.stroy1click.auth.tracing.TailSamplingSpanProcessor;
+import ru.stroy1click.auth.tracing.TracingSamplingProperties;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TracingSamplingTest {
+
+    private final List<SpanData> exported = new CopyOnWriteArrayList<>();
+
+    private final List<Thread> exportThreads = new CopyOnWriteArrayList<>();
+
+    private TailSamplingSpanProcessor tailProcessor;
+
+    private Tracer tracer;
+
+    @BeforeEach
+    public void setUp() {
+        this.tailProcessor = new TailSamplingSpanProcessor(Duration.ofSeconds(10), 100);
+        this.tailProcessor.addExporter(new CollectingExporter());
+        this.tracer = SdkTracerProvider.builder()
+                .setSampler(new EndpointSampler(List.of(
+                        new TracingSamplingProperties.Rule("/api/v1/auth/validate", 0, false),
+                        new TracingSamplingProperties.Rule("/api/v1/auth/login", 0, true)
+                ), Sampler.alwaysOn()))
+                .addSpanProcessor(this.tailProcessor)
+                .build()
+                .get("test");
+    }
+
+    @Test
+    public void shouldSample_ShouldNotRecord_WhenValidateIsSampledOut() {
+        // When
+        Span span = serverSpan("/api/v1/auth/validate");
+
+        // Then
+        assertFalse(span.isRecording());
+        span.end();
+        assertTrue(this.exported.isEmpty());
+    }
+
+    @Test
+    public void shouldSample_ShouldFallBack_WhenPathHasNoRule() {
+        // When
+        Span span = serverSpan("/api/v1/auth/registration");
+
+        // Then
+        assertTrue(span.getSpanContext().isSampled());
+        span.end();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.tailProcessor.shutdown();
+    }
+
+    @Test
+    public void onEnd_ShouldExportWholeTrace_WhenSampledOutLoginFailed() {
+        // Given
+        Span root = serverSpan("/api/v1/auth/login");
+        try (Scope ignored = root.makeCurrent()) {
+            this.tracer.spanBuilder("select").startSpan().end();
+        }
+
+        // When
+        root.setAttribute("http.response.status_code", 401L);
+        root.end();
+
+        // Then
+        assertFalse(root.getSpanContext().isSampled());
+        assertTrue(eventually(() -> this.exported.size() == 2));
+        assertFalse(this.exportThreads.contains(Thread.currentThread()));
+    }
+
+    @Test
+    public void onEnd_ShouldDropTrace_WhenSampledOutLoginSucceededQuickly() {
+        // Given
+        Span root = serverSpan("/api/v1/auth/login");
+        try (Scope ignored = root.makeCurrent()) {
+            this.tracer.spanBuilder("select").startSpan().end();
+        }
+
+        // When
+        root.setAttribute("http.response.status_code", 200L);
+        root.end();
+
+        // Then
+        this.tailProcessor.forceFlush();
+        assertTrue(this.exported.isEmpty());
+    }
+
+    private Span serverSpan(String path) {
+        return this.tracer.spanBuilder("POST " + path)
+                .setSpanKind(SpanKind.SERVER)
+                .setAttribute("url.path", path)
+                .startSpan();
+    }
+
+    private static boolean eventually(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            if (condition.getAsBoolean()) return true;
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return condition.getAsBoolean();
+    }
+
+    private class CollectingExporter implements SpanExporter {
+
+        @Override
+        public CompletableResultCode export(Collection<SpanData> spans) {
+            exportThreads.add(Thread.currentThread());
+            exported.addAll(spans);
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode flush() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+    }
+}